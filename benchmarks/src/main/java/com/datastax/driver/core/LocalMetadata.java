@@ -0,0 +1,233 @@
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds driver metadata from the CQL of the schema, so that bound statements, rows and UDT values can be created without a cluster.
+ * Lives in the driver package for the package private constructors of the metadata classes.
+ */
+public class LocalMetadata {
+
+  public static final String KEYSPACE = "camunda";
+  public static final ProtocolVersion PROTOCOL_VERSION = ProtocolVersion.V3;
+
+  /**
+   * @param createType a CREATE TYPE statement
+   */
+  public static UserType userType(String createType) {
+    List<UserType.Field> fields = new ArrayList<UserType.Field>();
+    for (Map.Entry<String, DataType> column : parseColumns(createType).entrySet()) {
+      fields.add(new UserType.Field(column.getKey(), column.getValue()));
+    }
+    return new UserType(KEYSPACE, parseName(createType), fields);
+  }
+
+  /**
+   * @param createTable a CREATE TABLE statement with columns of primitive types
+   * @return an INSERT statement binding all columns of the table
+   */
+  public static PreparedStatement insertStatement(String createTable) {
+    String table = parseName(createTable);
+    Map<String, DataType> columns = parseColumns(createTable);
+
+    StringBuilder names = new StringBuilder();
+    StringBuilder markers = new StringBuilder();
+    ColumnDefinitions.Definition[] definitions = new ColumnDefinitions.Definition[columns.size()];
+    int i = 0;
+    for (Map.Entry<String, DataType> column : columns.entrySet()) {
+      if(i > 0) {
+        names.append(", ");
+        markers.append(", ");
+      }
+      names.append(column.getKey());
+      markers.append("?");
+      definitions[i++] = new ColumnDefinitions.Definition(KEYSPACE, table, column.getKey(), column.getValue());
+    }
+    String query = "INSERT INTO "+table+" ("+names+") VALUES ("+markers+");";
+    return new LocalPreparedStatement(query, new ColumnDefinitions(definitions));
+  }
+
+  /**
+   * @return a row holding the values bound to the statement, as returned by a SELECT of the same columns
+   */
+  public static Row row(BoundStatement statement) {
+    ColumnDefinitions columns = statement.preparedStatement().getVariables();
+    List<ByteBuffer> values = new ArrayList<ByteBuffer>(columns.size());
+    for (int i = 0; i < columns.size(); i++) {
+      values.add(statement.getBytesUnsafe(i));
+    }
+    return ArrayBackedRow.fromData(columns, null, PROTOCOL_VERSION, values);
+  }
+
+  protected static String parseName(String create) {
+    String head = create.substring(0, create.indexOf('(')).trim();
+    return head.substring(head.lastIndexOf(' ') + 1);
+  }
+
+  protected static Map<String, DataType> parseColumns(String create) {
+    String body = create.substring(create.indexOf('(') + 1, create.lastIndexOf(')'));
+    Map<String, DataType> columns = new LinkedHashMap<String, DataType>();
+    for (String column : splitTopLevel(body)) {
+      String[] parts = column.trim().split("\\s+");
+      if(parts.length < 2 || "PRIMARY".equalsIgnoreCase(parts[0])) {
+        continue;
+      }
+      columns.put(parts[0], parseType(parts[1]));
+    }
+    return columns;
+  }
+
+  protected static List<String> splitTopLevel(String body) {
+    List<String> parts = new ArrayList<String>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < body.length(); i++) {
+      char c = body.charAt(i);
+      if(c == '<' || c == '(') {
+        depth++;
+      }
+      else if(c == '>' || c == ')') {
+        depth--;
+      }
+      else if(c == ',' && depth == 0) {
+        parts.add(body.substring(start, i));
+        start = i + 1;
+      }
+    }
+    parts.add(body.substring(start));
+    return parts;
+  }
+
+  protected static DataType parseType(String type) {
+    String name = type.toLowerCase();
+    if("text".equals(name) || "varchar".equals(name)) {
+      return DataType.text();
+    }
+    if("int".equals(name)) {
+      return DataType.cint();
+    }
+    if("bigint".equals(name)) {
+      return DataType.bigint();
+    }
+    if("boolean".equals(name)) {
+      return DataType.cboolean();
+    }
+    if("timestamp".equals(name)) {
+      return DataType.timestamp();
+    }
+    if("double".equals(name)) {
+      return DataType.cdouble();
+    }
+    if("blob".equals(name)) {
+      return DataType.blob();
+    }
+    if("uuid".equals(name)) {
+      return DataType.uuid();
+    }
+    throw new IllegalArgumentException("Unsupported column type "+type);
+  }
+
+  /**
+   * A prepared statement that was never sent to a cluster.
+   */
+  static class LocalPreparedStatement implements PreparedStatement {
+
+    protected final String query;
+    protected final ColumnDefinitions variables;
+    protected final PreparedId preparedId;
+    protected ByteBuffer routingKey;
+    protected ConsistencyLevel consistencyLevel;
+    protected ConsistencyLevel serialConsistencyLevel;
+    protected com.datastax.driver.core.policies.RetryPolicy retryPolicy;
+    protected boolean tracing;
+
+    LocalPreparedStatement(String query, ColumnDefinitions variables) {
+      this.query = query;
+      this.variables = variables;
+      this.preparedId = new PreparedId(MD5Digest.wrap(new byte[16]), variables, ColumnDefinitions.EMPTY, null, PROTOCOL_VERSION);
+    }
+
+    public ColumnDefinitions getVariables() {
+      return variables;
+    }
+
+    public BoundStatement bind(Object... values) {
+      return new BoundStatement(this).bind(values);
+    }
+
+    public BoundStatement bind() {
+      return new BoundStatement(this);
+    }
+
+    public PreparedStatement setRoutingKey(ByteBuffer routingKey) {
+      this.routingKey = routingKey;
+      return this;
+    }
+
+    public PreparedStatement setRoutingKey(ByteBuffer... routingKeyComponents) {
+      this.routingKey = SimpleStatement.compose(routingKeyComponents);
+      return this;
+    }
+
+    public ByteBuffer getRoutingKey() {
+      return routingKey;
+    }
+
+    public PreparedStatement setConsistencyLevel(ConsistencyLevel consistencyLevel) {
+      this.consistencyLevel = consistencyLevel;
+      return this;
+    }
+
+    public ConsistencyLevel getConsistencyLevel() {
+      return consistencyLevel;
+    }
+
+    public PreparedStatement setSerialConsistencyLevel(ConsistencyLevel serialConsistencyLevel) {
+      this.serialConsistencyLevel = serialConsistencyLevel;
+      return this;
+    }
+
+    public ConsistencyLevel getSerialConsistencyLevel() {
+      return serialConsistencyLevel;
+    }
+
+    public String getQueryString() {
+      return query;
+    }
+
+    public String getQueryKeyspace() {
+      return KEYSPACE;
+    }
+
+    public PreparedStatement enableTracing() {
+      tracing = true;
+      return this;
+    }
+
+    public PreparedStatement disableTracing() {
+      tracing = false;
+      return this;
+    }
+
+    public boolean isTracing() {
+      return tracing;
+    }
+
+    public PreparedStatement setRetryPolicy(com.datastax.driver.core.policies.RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    public com.datastax.driver.core.policies.RetryPolicy getRetryPolicy() {
+      return retryPolicy;
+    }
+
+    public PreparedId getPreparedId() {
+      return preparedId;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package org.camunda.bpm.engine.cassandra.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler;
+import org.camunda.bpm.engine.impl.persistence.entity.EventSubscriptionEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.MessageEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.MessageEventSubscriptionEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.VariableInstanceEntity;
+
+/**
+ * Entities with the ids and values an engine writes for a typical process, built without a process engine.
+ */
+public class EntityFixtures {
+
+  public static final String PROCESS_DEFINITION_KEY = "invoice";
+  public static final String PROCESS_DEFINITION_ID = PROCESS_DEFINITION_KEY + ":3:" + id();
+  public static final String DEPLOYMENT_ID = id();
+
+  public static String id() {
+    return UUID.randomUUID().toString();
+  }
+
+  public static String text(int length) {
+    char[] chars = new char[length];
+    Arrays.fill(chars, 'x');
+    return new String(chars);
+  }
+
+  public static JobEntity job(String processInstanceId, int exceptionMessageLength) {
+    MessageEntity job = new MessageEntity();
+    job.setId(id());
+    job.setDuedate(new Date());
+    job.setExclusive(true);
+    job.setExecutionId(id());
+    job.setProcessInstanceId(processInstanceId);
+    job.setProcessDefinitionId(PROCESS_DEFINITION_ID);
+    job.setProcessDefinitionKey(PROCESS_DEFINITION_KEY);
+    job.setJobHandlerType("async-continuation");
+    job.setJobHandlerConfiguration("transition-create-scope");
+    job.setDeploymentId(DEPLOYMENT_ID);
+    job.setJobDefinitionId(id());
+    job.setSequenceCounter(7);
+    job.setPriority(0);
+    job.setRevision(1);
+    if(exceptionMessageLength > 0) {
+      job.setExceptionMessage(text(exceptionMessageLength));
+    }
+    return job;
+  }
+
+  /**
+   * @return the process instance execution followed by its concurrent child executions
+   */
+  public static List<ExecutionEntity> executionTree(int executions) {
+    List<ExecutionEntity> tree = new ArrayList<ExecutionEntity>(executions);
+    String processInstanceId = id();
+    ExecutionEntity processInstance = execution(processInstanceId, processInstanceId, null);
+    processInstance.setScope(true);
+    tree.add(processInstance);
+    for (int i = 1; i < executions; i++) {
+      ExecutionEntity child = execution(id(), processInstanceId, processInstanceId);
+      child.setConcurrent(true);
+      child.setActivityId("ServiceTask_" + i);
+      tree.add(child);
+    }
+    return tree;
+  }
+
+  protected static ExecutionEntity execution(String id, String processInstanceId, String parentId) {
+    ExecutionEntity execution = new ExecutionEntity();
+    execution.setId(id);
+    execution.setProcessInstanceId(processInstanceId);
+    execution.setParentId(parentId);
+    execution.setProcessDefinitionId(PROCESS_DEFINITION_ID);
+    execution.setActivityId("ReceiveTask_1");
+    execution.setActivityInstanceId("ReceiveTask_1:" + id());
+    execution.setActive(true);
+    execution.setSuspensionState(1);
+    execution.setSequenceCounter(3);
+    return execution;
+  }
+
+  public static VariableInstanceEntity stringVariable(ExecutionEntity execution, int textLength) {
+    VariableInstanceEntity variable = new VariableInstanceEntity();
+    variable.setId(id());
+    variable.setSerializerName("string");
+    variable.setName("customerName");
+    variable.setExecutionId(execution.getId());
+    variable.setProcessInstanceId(execution.getProcessInstanceId());
+    variable.setTextValue(text(textLength));
+    variable.setSequenceCounter(2);
+    return variable;
+  }
+
+  public static EventSubscriptionEntity messageSubscription(ExecutionEntity execution) {
+    MessageEventSubscriptionEntity subscription = new MessageEventSubscriptionEntity();
+    subscription.setId(id());
+    subscription.setEventName("Message-Approve");
+    subscription.setExecutionId(execution.getId());
+    subscription.setProcessInstanceId(execution.getProcessInstanceId());
+    subscription.setActivityId("ReceiveTask_1");
+    subscription.setCreated(new Date());
+    return subscription;
+  }
+
+  /**
+   * Exposes the job table definition, so that the benchmarks bind the same columns as the schema.
+   */
+  public static class JobTable extends JobTableHandler {
+    public static final String CREATE = CREATE_TABLE;
+  }
+}
@@ -0,0 +1,114 @@
+package org.camunda.bpm.engine.cassandra.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.cassandra.provider.operation.LoadedCompositeEntity;
+import org.camunda.bpm.engine.cassandra.provider.operation.ProcessInstanceLoader;
+import org.camunda.bpm.engine.cassandra.provider.serializer.ExecutionEntitySerializer;
+import org.camunda.bpm.engine.cassandra.provider.type.ExecutionTypeHandler;
+import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.LocalMetadata;
+import com.datastax.driver.core.UDTValue;
+import com.datastax.driver.core.UserType;
+
+/**
+ * Round trips of the execution tree of a process instance through the executions column, a map of execution UDTs,
+ * and the reconstruction of the tree by the {@link ProcessInstanceLoader}.
+ * Run with <code>-prof gc</code> for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProcessInstanceBenchmark {
+
+  //executions of the process instance, including the process instance execution
+  @Param({"1", "10", "100"})
+  public int executions;
+
+  protected ExecutionEntitySerializer serializer = new ExecutionEntitySerializer();
+  protected BenchmarkProcessInstanceLoader loader = new BenchmarkProcessInstanceLoader();
+  protected UserType executionType;
+  protected DataType executionsColumnType;
+
+  protected List<ExecutionEntity> executionTree;
+  protected ByteBuffer serializedExecutions;
+  protected Map<String, UDTValue> executionValues;
+
+  @Setup
+  public void setup() {
+    executionType = LocalMetadata.userType(ExecutionTypeHandler.CREATE);
+    executionsColumnType = DataType.map(DataType.text(), executionType);
+    executionTree = EntityFixtures.executionTree(executions);
+    serializedExecutions = writeExecutions();
+    executionValues = readExecutions();
+  }
+
+  /**
+   * Serializes the executions and the column, as for an update of the process instance.
+   */
+  @Benchmark
+  public ByteBuffer writeExecutions() {
+    Map<String, UDTValue> values = new HashMap<String, UDTValue>();
+    for (ExecutionEntity execution : executionTree) {
+      UDTValue value = executionType.newValue();
+      serializer.write(value, execution);
+      values.put(execution.getId(), value);
+    }
+    return executionsColumnType.serialize(values, LocalMetadata.PROTOCOL_VERSION);
+  }
+
+  /**
+   * Deserializes the column into UDT values, as for the row of a process instance read.
+   */
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public Map<String, UDTValue> readExecutions() {
+    return (Map<String, UDTValue>) executionsColumnType.deserialize(serializedExecutions.duplicate(), LocalMetadata.PROTOCOL_VERSION);
+  }
+
+  /**
+   * Deserializes the executions from the UDT values and restores the execution tree, as the loader does for every load.
+   */
+  @Benchmark
+  public LoadedCompositeEntity reconstructEntityTree() {
+    LoadedCompositeEntity composite = new LoadedCompositeEntity();
+    composite.putSerialized(ProcessInstanceLoader.EXECUTIONS, executionValues, serializer);
+    for (DbEntity execution : composite.get(ProcessInstanceLoader.EXECUTIONS).values()) {
+      if(((ExecutionEntity) execution).isProcessInstanceExecution()) {
+        composite.setMainEntity(execution);
+      }
+    }
+    loader.reconstruct(composite);
+    return composite;
+  }
+
+  /**
+   * Exposes the tree reconstruction of the loader.
+   */
+  public static class BenchmarkProcessInstanceLoader extends ProcessInstanceLoader {
+    public void reconstruct(LoadedCompositeEntity composite) {
+      reconstructEntityTree(composite);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package org.camunda.bpm.engine.cassandra.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.camunda.bpm.engine.cassandra.provider.serializer.EventSubscriptionSerializer;
+import org.camunda.bpm.engine.cassandra.provider.serializer.ExecutionEntitySerializer;
+import org.camunda.bpm.engine.cassandra.provider.serializer.JobEntitySerializer;
+import org.camunda.bpm.engine.cassandra.provider.serializer.VariableEntitySerializer;
+import org.camunda.bpm.engine.cassandra.provider.type.EventSubscriptionTypeHandler;
+import org.camunda.bpm.engine.cassandra.provider.type.ExecutionTypeHandler;
+import org.camunda.bpm.engine.cassandra.provider.type.VariableTypeHandler;
+import org.camunda.bpm.engine.impl.persistence.entity.EventSubscriptionEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.LocalMetadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.UDTValue;
+import com.datastax.driver.core.UserType;
+
+/**
+ * Write, read and copy throughput of the serializers. Jobs are written to a bound statement of the job table and read from a row,
+ * the entities embedded in the process instance are written to and read from UDT values.
+ * Run with <code>-prof gc</code> for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+  @State(Scope.Thread)
+  public static class JobState {
+
+    //length of the exception message, 0 for a job that has not failed, the engine truncates messages to 666 characters
+    @Param({"0", "666"})
+    public int exceptionMessageLength;
+
+    protected JobEntitySerializer serializer = new JobEntitySerializer();
+    protected PreparedStatement insert;
+    protected JobEntity job;
+    protected Row row;
+
+    @Setup
+    public void setup() {
+      insert = LocalMetadata.insertStatement(EntityFixtures.JobTable.CREATE);
+      job = EntityFixtures.job(EntityFixtures.id(), exceptionMessageLength);
+      row = LocalMetadata.row(write());
+    }
+
+    protected BoundStatement write() {
+      BoundStatement statement = insert.bind();
+      serializer.write(statement, job);
+      return statement;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ExecutionState {
+
+    protected ExecutionEntitySerializer serializer = new ExecutionEntitySerializer();
+    protected UserType type;
+    protected ExecutionEntity execution;
+    protected UDTValue value;
+
+    @Setup
+    public void setup() {
+      type = LocalMetadata.userType(ExecutionTypeHandler.CREATE);
+      execution = EntityFixtures.executionTree(1).get(0);
+      value = write();
+    }
+
+    protected UDTValue write() {
+      UDTValue udtValue = type.newValue();
+      serializer.write(udtValue, execution);
+      return udtValue;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class VariableState {
+
+    //length of the text value of the string variable
+    @Param({"16", "4000"})
+    public int textLength;
+
+    protected VariableEntitySerializer serializer = new VariableEntitySerializer();
+    protected UserType type;
+    protected VariableInstanceEntity variable;
+    protected UDTValue value;
+
+    @Setup
+    public void setup() {
+      type = LocalMetadata.userType(VariableTypeHandler.CREATE_TYPE_STATEMENT);
+      variable = EntityFixtures.stringVariable(EntityFixtures.executionTree(1).get(0), textLength);
+      value = write();
+    }
+
+    protected UDTValue write() {
+      UDTValue udtValue = type.newValue();
+      serializer.write(udtValue, variable);
+      return udtValue;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class EventSubscriptionState {
+
+    protected EventSubscriptionSerializer serializer = new EventSubscriptionSerializer();
+    protected UserType type;
+    protected EventSubscriptionEntity eventSubscription;
+    protected UDTValue value;
+
+    @Setup
+    public void setup() {
+      type = LocalMetadata.userType(EventSubscriptionTypeHandler.CREATE);
+      eventSubscription = EntityFixtures.messageSubscription(EntityFixtures.executionTree(1).get(0));
+      value = write();
+    }
+
+    protected UDTValue write() {
+      UDTValue udtValue = type.newValue();
+      serializer.write(udtValue, eventSubscription);
+      return udtValue;
+    }
+  }
+
+  @Benchmark
+  public BoundStatement writeJob(JobState state) {
+    return state.write();
+  }
+
+  @Benchmark
+  public JobEntity readJob(JobState state) {
+    return state.serializer.read(state.row);
+  }
+
+  @Benchmark
+  public JobEntity copyJob(JobState state) {
+    return state.serializer.copy(state.job);
+  }
+
+  @Benchmark
+  public UDTValue writeExecution(ExecutionState state) {
+    return state.write();
+  }
+
+  @Benchmark
+  public ExecutionEntity readExecution(ExecutionState state) {
+    return state.serializer.read(state.value);
+  }
+
+  @Benchmark
+  public ExecutionEntity copyExecution(ExecutionState state) {
+    return state.serializer.copy(state.execution);
+  }
+
+  @Benchmark
+  public UDTValue writeVariable(VariableState state) {
+    return state.write();
+  }
+
+  @Benchmark
+  public VariableInstanceEntity readVariable(VariableState state) {
+    return state.serializer.read(state.value);
+  }
+
+  @Benchmark
+  public VariableInstanceEntity copyVariable(VariableState state) {
+    return state.serializer.copy(state.variable);
+  }
+
+  @Benchmark
+  public UDTValue writeEventSubscription(EventSubscriptionState state) {
+    return state.write();
+  }
+
+  @Benchmark
+  public EventSubscriptionEntity readEventSubscription(EventSubscriptionState state) {
+    return state.serializer.read(state.value);
+  }
+
+  @Benchmark
+  public EventSubscriptionEntity copyEventSubscription(EventSubscriptionState state) {
+    return state.serializer.copy(state.eventSubscription);
+  }
+}
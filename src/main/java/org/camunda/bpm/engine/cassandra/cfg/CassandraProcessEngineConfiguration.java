@@ -1,27 +1,88 @@
 package org.camunda.bpm.engine.cassandra.cfg;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSessionFactory;
+import org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler;
+import org.camunda.bpm.engine.cassandra.provider.table.ProcessDefinitionTableHandler;
+import org.camunda.bpm.engine.cassandra.provider.table.TableOptions;
 import org.camunda.bpm.engine.impl.cfg.StandaloneProcessEngineConfiguration;
 import org.camunda.bpm.engine.impl.persistence.StrongUuidGenerator;
 
 import com.datastax.driver.core.AtomicMonotonicTimestampGenerator;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.HostDistance;
 import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.QueryOptions;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
 
 public class CassandraProcessEngineConfiguration extends StandaloneProcessEngineConfiguration {
 
   public static final String DEFAULT_KEYSPACE = "camunda";
-  protected String cassandraContactPoint;
+  public static final int DEFAULT_BYTE_ARRAY_CHUNK_SIZE = 64 * 1024;
+  public static final int DEFAULT_MAX_BYTES_PER_BATCH = 40 * 1024;
+  protected String cassandraContactPoint; //comma separated list of contact points
+  protected int cassandraPort = 0; //0 for the driver default
+  //driver settings, only used if the cluster is not injected, null keeps the driver default
+  protected boolean tokenAware = true; //route requests to a replica of the partition
+  protected String localDatacenter; //null to use the datacenter of the contact points
+  protected int usedHostsPerRemoteDc = 0;
+  protected Integer coreConnectionsPerHost;
+  protected Integer maxConnectionsPerHost;
+  protected Integer maxRequestsPerConnection; //in flight requests per connection, protocol v3 and later
+  protected String protocolCompression; //none, lz4 (requires net.jpountz.lz4) or snappy (requires org.xerial.snappy)
+  protected Integer connectTimeoutMillis;
+  protected Integer readTimeoutMillis;
+  protected Long speculativeExecutionDelayMillis; //send idempotent reads to another replica if there is no response yet, null to disable
+  protected int maxSpeculativeExecutions = 1;
+  //consistency levels by kind of statement, null keeps the driver default (see ConsistencyPolicy)
+  protected ConsistencyLevel defaultConsistency;
+  protected ConsistencyLevel serialConsistency;
+  protected ConsistencyLevel processInstanceWriteConsistency;
+  protected ConsistencyLevel indexWriteConsistency;
+  protected ConsistencyLevel jobAcquisitionConsistency;
+  protected ConsistencyLevel queryConsistency;
   protected Cluster cluster;
   protected Session session;
   protected String keyspace;
   protected int jobShardSizeHours=1; //size of the job shard
-  protected int jobShardInitNumber=10; //how far to go back to find active shards on start-up
+  protected int jobShardInitNumber=10; //how far to go back to find active shards on start-up if the shard registry is empty
+  protected int jobShardRefreshSeconds=60; //how often the job shard registry is reloaded
+  protected int jobIndexBuckets=1; //number of partitions each job shard is spread over
+  protected int jobPriorityBands=1; //job priorities 0 to jobPriorityBands-1 are acquired in order, lower and higher priorities are clamped
+  protected long[] jobPriorityBandBoundaries; //lowest priority of each band above band 0 in ascending order, e.g. {10, 100, 1000}, overrides jobPriorityBands
+  protected boolean jobBucketLeases=false; //each node acquires jobs from the buckets it holds a lease on only
+  protected int jobBucketLeaseSeconds=30;
   //protected int maxPriority=5; //maximum priority
   protected int replicationFactor = 1;
+  protected boolean asyncCommit = false; //send independent batches in parallel on commit
+  //split the variety batch into unlogged batches per partition, gives up the atomicity of the variety batch,
+  //e.g. a job row can be written without its index rows, disabled by default
+  protected boolean batchPerPartition = false;
+  protected int maxStatementsPerBatch = 100;
+  protected int maxBytesPerBatch = DEFAULT_MAX_BYTES_PER_BATCH; //below the default batch_size_fail_threshold_in_kb of 50
+  protected long processInstanceCacheSize = 0; //engine wide process instance cache, disabled by default
+  protected long processInstanceCacheExpirySeconds = 60;
+  protected boolean clusteredVariables = false; //store variables as clustering rows of the process instance partition
+  protected int byteArrayChunkSize = DEFAULT_BYTE_ARRAY_CHUNK_SIZE; //byte arrays are stored in chunks of this size
+  protected boolean byteArrayCompression = false; //LZ4 compression of byte arrays, requires net.jpountz.lz4 on the classpath
+  protected boolean denormalizedJobIndex = false; //copy the job columns into the job index, jobs are acquired with a single read
+  protected Map<String, TableOptions> tableOptions = new HashMap<String, TableOptions>(); //table properties by table name, overriding the defaults
+  protected boolean handlerMetrics = false; //latency histograms of the persistence handlers, published over JMX
+  protected boolean commitStatistics = false; //statement, byte and LWT counts of the commits, published over JMX
+  protected Integer commitLogThresholdMillis; //log the statistics of commits taking longer, null to disable
+  protected Integer commitLogThresholdBytes; //log the statistics of commits writing more bytes, null to disable
 
   protected boolean hasOpenedCluster = false;
 
@@ -42,15 +103,12 @@ public class CassandraProcessEngineConfiguration extends StandaloneProcessEngine
     }
 
     if(cluster == null) {
-      cluster = Cluster.builder()
-        .addContactPoint(cassandraContactPoint)
-        .withTimestampGenerator(new AtomicMonotonicTimestampGenerator())
-        .build();
+      cluster = createClusterBuilder().build();
       hasOpenedCluster = true;
     }
 
     // make sure the keyspace exists (create it with default replication settings otherwise)
-    KeyspaceMetadata existingKeyspace = cluster.getMetadata().getKeyspace("camunda");
+    KeyspaceMetadata existingKeyspace = cluster.getMetadata().getKeyspace(keyspace);
     if(existingKeyspace == null) {
       final Session session = cluster.connect();
       session.execute(String.format("CREATE keyspace %s WITH REPLICATION = { 'class' : 'SimpleStrategy', 'replication_factor' : " + replicationFactor + " };", keyspace));
@@ -62,6 +120,65 @@ public class CassandraProcessEngineConfiguration extends StandaloneProcessEngine
     }
   }
 
+  protected Cluster.Builder createClusterBuilder() {
+    Cluster.Builder builder = Cluster.builder()
+      .addContactPoints(cassandraContactPoint.trim().split("\\s*,\\s*"))
+      .withTimestampGenerator(new AtomicMonotonicTimestampGenerator())
+      .withLoadBalancingPolicy(createLoadBalancingPolicy());
+    if(cassandraPort > 0) {
+      builder.withPort(cassandraPort);
+    }
+
+    PoolingOptions poolingOptions = new PoolingOptions();
+    if(coreConnectionsPerHost != null) {
+      poolingOptions.setCoreConnectionsPerHost(HostDistance.LOCAL, coreConnectionsPerHost);
+    }
+    if(maxConnectionsPerHost != null) {
+      poolingOptions.setMaxConnectionsPerHost(HostDistance.LOCAL, maxConnectionsPerHost);
+    }
+    if(maxRequestsPerConnection != null) {
+      poolingOptions.setMaxRequestsPerConnection(HostDistance.LOCAL, maxRequestsPerConnection);
+    }
+    builder.withPoolingOptions(poolingOptions);
+
+    SocketOptions socketOptions = new SocketOptions();
+    if(connectTimeoutMillis != null) {
+      socketOptions.setConnectTimeoutMillis(connectTimeoutMillis);
+    }
+    if(readTimeoutMillis != null) {
+      socketOptions.setReadTimeoutMillis(readTimeoutMillis);
+    }
+    builder.withSocketOptions(socketOptions);
+
+    if(speculativeExecutionDelayMillis != null) {
+      //only statements marked as idempotent are retried, i.e. reads, never writes or LWTs
+      builder.withSpeculativeExecutionPolicy(new ConstantSpeculativeExecutionPolicy(speculativeExecutionDelayMillis, maxSpeculativeExecutions));
+    }
+
+    QueryOptions queryOptions = new QueryOptions();
+    if(defaultConsistency != null) {
+      queryOptions.setConsistencyLevel(defaultConsistency);
+    }
+    if(serialConsistency != null) {
+      queryOptions.setSerialConsistencyLevel(serialConsistency);
+    }
+    builder.withQueryOptions(queryOptions);
+
+    if(protocolCompression != null) {
+      builder.withCompression(ProtocolOptions.Compression.valueOf(protocolCompression.trim().toUpperCase()));
+    }
+    return builder;
+  }
+
+  protected LoadBalancingPolicy createLoadBalancingPolicy() {
+    DCAwareRoundRobinPolicy.Builder builder = DCAwareRoundRobinPolicy.builder();
+    if(localDatacenter != null) {
+      builder.withLocalDc(localDatacenter).withUsedHostsPerRemoteDc(usedHostsPerRemoteDc);
+    }
+    LoadBalancingPolicy policy = builder.build();
+    return tokenAware ? new TokenAwarePolicy(policy) : policy;
+  }
+
   @Override
   public ProcessEngine buildProcessEngine() {
     super.buildProcessEngine();
@@ -73,6 +190,7 @@ public class CassandraProcessEngineConfiguration extends StandaloneProcessEngine
   public void close()
   {
     super.close();
+    CassandraPersistenceSession.staticClose();
     if(hasOpenedCluster) {
       cluster.close();
     }
@@ -114,6 +232,168 @@ public class CassandraProcessEngineConfiguration extends StandaloneProcessEngine
     return this;
   }
 
+  public int getCassandraPort() {
+    return cassandraPort;
+  }
+
+  public CassandraProcessEngineConfiguration setCassandraPort(int cassandraPort) {
+    this.cassandraPort = cassandraPort;
+    return this;
+  }
+
+  public boolean isTokenAware() {
+    return tokenAware;
+  }
+
+  public CassandraProcessEngineConfiguration setTokenAware(boolean tokenAware) {
+    this.tokenAware = tokenAware;
+    return this;
+  }
+
+  public String getLocalDatacenter() {
+    return localDatacenter;
+  }
+
+  public CassandraProcessEngineConfiguration setLocalDatacenter(String localDatacenter) {
+    this.localDatacenter = localDatacenter;
+    return this;
+  }
+
+  public int getUsedHostsPerRemoteDc() {
+    return usedHostsPerRemoteDc;
+  }
+
+  public CassandraProcessEngineConfiguration setUsedHostsPerRemoteDc(int usedHostsPerRemoteDc) {
+    this.usedHostsPerRemoteDc = usedHostsPerRemoteDc;
+    return this;
+  }
+
+  public Integer getCoreConnectionsPerHost() {
+    return coreConnectionsPerHost;
+  }
+
+  public CassandraProcessEngineConfiguration setCoreConnectionsPerHost(Integer coreConnectionsPerHost) {
+    this.coreConnectionsPerHost = coreConnectionsPerHost;
+    return this;
+  }
+
+  public Integer getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  public CassandraProcessEngineConfiguration setMaxConnectionsPerHost(Integer maxConnectionsPerHost) {
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    return this;
+  }
+
+  public Integer getMaxRequestsPerConnection() {
+    return maxRequestsPerConnection;
+  }
+
+  public CassandraProcessEngineConfiguration setMaxRequestsPerConnection(Integer maxRequestsPerConnection) {
+    this.maxRequestsPerConnection = maxRequestsPerConnection;
+    return this;
+  }
+
+  public String getProtocolCompression() {
+    return protocolCompression;
+  }
+
+  public CassandraProcessEngineConfiguration setProtocolCompression(String protocolCompression) {
+    this.protocolCompression = protocolCompression;
+    return this;
+  }
+
+  public Integer getConnectTimeoutMillis() {
+    return connectTimeoutMillis;
+  }
+
+  public CassandraProcessEngineConfiguration setConnectTimeoutMillis(Integer connectTimeoutMillis) {
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    return this;
+  }
+
+  public Integer getReadTimeoutMillis() {
+    return readTimeoutMillis;
+  }
+
+  public CassandraProcessEngineConfiguration setReadTimeoutMillis(Integer readTimeoutMillis) {
+    this.readTimeoutMillis = readTimeoutMillis;
+    return this;
+  }
+
+  public Long getSpeculativeExecutionDelayMillis() {
+    return speculativeExecutionDelayMillis;
+  }
+
+  public CassandraProcessEngineConfiguration setSpeculativeExecutionDelayMillis(Long speculativeExecutionDelayMillis) {
+    this.speculativeExecutionDelayMillis = speculativeExecutionDelayMillis;
+    return this;
+  }
+
+  public int getMaxSpeculativeExecutions() {
+    return maxSpeculativeExecutions;
+  }
+
+  public CassandraProcessEngineConfiguration setMaxSpeculativeExecutions(int maxSpeculativeExecutions) {
+    this.maxSpeculativeExecutions = maxSpeculativeExecutions;
+    return this;
+  }
+
+  public ConsistencyLevel getDefaultConsistency() {
+    return defaultConsistency;
+  }
+
+  public CassandraProcessEngineConfiguration setDefaultConsistency(ConsistencyLevel defaultConsistency) {
+    this.defaultConsistency = defaultConsistency;
+    return this;
+  }
+
+  public ConsistencyLevel getSerialConsistency() {
+    return serialConsistency;
+  }
+
+  public CassandraProcessEngineConfiguration setSerialConsistency(ConsistencyLevel serialConsistency) {
+    this.serialConsistency = serialConsistency;
+    return this;
+  }
+
+  public ConsistencyLevel getProcessInstanceWriteConsistency() {
+    return processInstanceWriteConsistency;
+  }
+
+  public CassandraProcessEngineConfiguration setProcessInstanceWriteConsistency(ConsistencyLevel processInstanceWriteConsistency) {
+    this.processInstanceWriteConsistency = processInstanceWriteConsistency;
+    return this;
+  }
+
+  public ConsistencyLevel getIndexWriteConsistency() {
+    return indexWriteConsistency;
+  }
+
+  public CassandraProcessEngineConfiguration setIndexWriteConsistency(ConsistencyLevel indexWriteConsistency) {
+    this.indexWriteConsistency = indexWriteConsistency;
+    return this;
+  }
+
+  public ConsistencyLevel getJobAcquisitionConsistency() {
+    return jobAcquisitionConsistency;
+  }
+
+  public CassandraProcessEngineConfiguration setJobAcquisitionConsistency(ConsistencyLevel jobAcquisitionConsistency) {
+    this.jobAcquisitionConsistency = jobAcquisitionConsistency;
+    return this;
+  }
+
+  public ConsistencyLevel getQueryConsistency() {
+    return queryConsistency;
+  }
+
+  public CassandraProcessEngineConfiguration setQueryConsistency(ConsistencyLevel queryConsistency) {
+    this.queryConsistency = queryConsistency;
+    return this;
+  }
+
   public Session getSession() {
     return session;
   }
@@ -140,6 +420,163 @@ public class CassandraProcessEngineConfiguration extends StandaloneProcessEngine
     return replicationFactor;
   }
 
+  public boolean isAsyncCommit() {
+    return asyncCommit;
+  }
+
+  public CassandraProcessEngineConfiguration setAsyncCommit(boolean asyncCommit) {
+    this.asyncCommit = asyncCommit;
+    return this;
+  }
+
+  public boolean isHandlerMetrics() {
+    return handlerMetrics;
+  }
+
+  public CassandraProcessEngineConfiguration setHandlerMetrics(boolean handlerMetrics) {
+    this.handlerMetrics = handlerMetrics;
+    return this;
+  }
+
+  public boolean isCommitStatistics() {
+    return commitStatistics;
+  }
+
+  public CassandraProcessEngineConfiguration setCommitStatistics(boolean commitStatistics) {
+    this.commitStatistics = commitStatistics;
+    return this;
+  }
+
+  public Integer getCommitLogThresholdMillis() {
+    return commitLogThresholdMillis;
+  }
+
+  public CassandraProcessEngineConfiguration setCommitLogThresholdMillis(Integer commitLogThresholdMillis) {
+    this.commitLogThresholdMillis = commitLogThresholdMillis;
+    return this;
+  }
+
+  public Integer getCommitLogThresholdBytes() {
+    return commitLogThresholdBytes;
+  }
+
+  public CassandraProcessEngineConfiguration setCommitLogThresholdBytes(Integer commitLogThresholdBytes) {
+    this.commitLogThresholdBytes = commitLogThresholdBytes;
+    return this;
+  }
+
+  public boolean isBatchPerPartition() {
+    return batchPerPartition;
+  }
+
+  public CassandraProcessEngineConfiguration setBatchPerPartition(boolean batchPerPartition) {
+    this.batchPerPartition = batchPerPartition;
+    return this;
+  }
+
+  public int getMaxStatementsPerBatch() {
+    return maxStatementsPerBatch;
+  }
+
+  public CassandraProcessEngineConfiguration setMaxStatementsPerBatch(int maxStatementsPerBatch) {
+    this.maxStatementsPerBatch = maxStatementsPerBatch;
+    return this;
+  }
+
+  public int getMaxBytesPerBatch() {
+    return maxBytesPerBatch;
+  }
+
+  public CassandraProcessEngineConfiguration setMaxBytesPerBatch(int maxBytesPerBatch) {
+    this.maxBytesPerBatch = maxBytesPerBatch;
+    return this;
+  }
+
+  public long getProcessInstanceCacheSize() {
+    return processInstanceCacheSize;
+  }
+
+  public CassandraProcessEngineConfiguration setProcessInstanceCacheSize(long processInstanceCacheSize) {
+    this.processInstanceCacheSize = processInstanceCacheSize;
+    return this;
+  }
+
+  public long getProcessInstanceCacheExpirySeconds() {
+    return processInstanceCacheExpirySeconds;
+  }
+
+  public CassandraProcessEngineConfiguration setProcessInstanceCacheExpirySeconds(long processInstanceCacheExpirySeconds) {
+    this.processInstanceCacheExpirySeconds = processInstanceCacheExpirySeconds;
+    return this;
+  }
+
+  public boolean isClusteredVariables() {
+    return clusteredVariables;
+  }
+
+  public CassandraProcessEngineConfiguration setClusteredVariables(boolean clusteredVariables) {
+    this.clusteredVariables = clusteredVariables;
+    return this;
+  }
+
+  public int getByteArrayChunkSize() {
+    return byteArrayChunkSize;
+  }
+
+  public CassandraProcessEngineConfiguration setByteArrayChunkSize(int byteArrayChunkSize) {
+    this.byteArrayChunkSize = byteArrayChunkSize;
+    return this;
+  }
+
+  public boolean isByteArrayCompression() {
+    return byteArrayCompression;
+  }
+
+  public CassandraProcessEngineConfiguration setByteArrayCompression(boolean byteArrayCompression) {
+    this.byteArrayCompression = byteArrayCompression;
+    return this;
+  }
+
+  public boolean isDenormalizedJobIndex() {
+    return denormalizedJobIndex;
+  }
+
+  public CassandraProcessEngineConfiguration setDenormalizedJobIndex(boolean denormalizedJobIndex) {
+    this.denormalizedJobIndex = denormalizedJobIndex;
+    return this;
+  }
+
+  /**
+   * @return the table properties applied when the schema is created, null to keep the server defaults
+   */
+  public TableOptions getTableOptions(String tableName) {
+    if(tableOptions.containsKey(tableName)) {
+      return tableOptions.get(tableName);
+    }
+    return getDefaultTableOptions(tableName);
+  }
+
+  protected TableOptions getDefaultTableOptions(String tableName) {
+    if(JobTableHandler.JOB_INDEX_TABLE.equals(tableName)) {
+      //index rows are deleted soon after they are written, leveled compaction brings a tombstone together with
+      //the row it deletes without relying on write time windows. gc_grace_seconds keeps the server default,
+      //a lower value requires repairs within that interval or deleted index rows come back as runnable jobs
+      return new TableOptions().setCompaction(TableOptions.LEVELED_COMPACTION);
+    }
+    if(ProcessDefinitionTableHandler.TABLE_NAME.equals(tableName)) {
+      return new TableOptions().setCaching("{'keys': 'ALL', 'rows_per_partition': 'ALL'}");
+    }
+    return null;
+  }
+
+  /**
+   * Sets the properties of a table, null or empty options keep the server defaults.
+   */
+  public CassandraProcessEngineConfiguration setTableOptions(String tableName, TableOptions options) {
+    tableOptions.put(tableName, options);
+    return this;
+  }
+
   public int getJobShardSizeHours() {
     return jobShardSizeHours;
   }
@@ -155,6 +592,75 @@ public class CassandraProcessEngineConfiguration extends StandaloneProcessEngine
   public void setJobShardInitNumber(int jobShardInitNumber) {
     this.jobShardInitNumber = jobShardInitNumber;
   }
+
+  public int getJobShardRefreshSeconds() {
+    return jobShardRefreshSeconds;
+  }
+
+  public CassandraProcessEngineConfiguration setJobShardRefreshSeconds(int jobShardRefreshSeconds) {
+    this.jobShardRefreshSeconds = jobShardRefreshSeconds;
+    return this;
+  }
+
+  public int getJobIndexBuckets() {
+    return jobIndexBuckets;
+  }
+
+  public CassandraProcessEngineConfiguration setJobIndexBuckets(int jobIndexBuckets) {
+    this.jobIndexBuckets = jobIndexBuckets;
+    return this;
+  }
+
+  public int getJobPriorityBands() {
+    return jobPriorityBandBoundaries != null ? jobPriorityBandBoundaries.length + 1 : jobPriorityBands;
+  }
+
+  public CassandraProcessEngineConfiguration setJobPriorityBands(int jobPriorityBands) {
+    this.jobPriorityBands = jobPriorityBands;
+    return this;
+  }
+
+  /**
+   * @return the lowest priority of each band above band 0, priorities 1 to jobPriorityBands-1 unless boundaries are set
+   */
+  public long[] getJobPriorityBandBoundaries() {
+    if(jobPriorityBandBoundaries != null) {
+      return jobPriorityBandBoundaries;
+    }
+    long[] boundaries = new long[Math.max(0, jobPriorityBands - 1)];
+    for(int i = 0; i < boundaries.length; i++) {
+      boundaries[i] = i + 1;
+    }
+    return boundaries;
+  }
+
+  public CassandraProcessEngineConfiguration setJobPriorityBandBoundaries(long... jobPriorityBandBoundaries) {
+    for(int i = 1; i < jobPriorityBandBoundaries.length; i++) {
+      if(jobPriorityBandBoundaries[i] <= jobPriorityBandBoundaries[i - 1]) {
+        throw new IllegalArgumentException("Job priority band boundaries must be in ascending order.");
+      }
+    }
+    this.jobPriorityBandBoundaries = jobPriorityBandBoundaries.clone();
+    return this;
+  }
+
+  public boolean isJobBucketLeases() {
+    return jobBucketLeases;
+  }
+
+  public CassandraProcessEngineConfiguration setJobBucketLeases(boolean jobBucketLeases) {
+    this.jobBucketLeases = jobBucketLeases;
+    return this;
+  }
+
+  public int getJobBucketLeaseSeconds() {
+    return jobBucketLeaseSeconds;
+  }
+
+  public CassandraProcessEngineConfiguration setJobBucketLeaseSeconds(int jobBucketLeaseSeconds) {
+    this.jobBucketLeaseSeconds = jobBucketLeaseSeconds;
+    return this;
+  }
 /*
   public int getMaxPriority() {
     return maxPriority;
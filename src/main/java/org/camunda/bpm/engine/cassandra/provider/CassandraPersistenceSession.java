@@ -1,11 +1,15 @@
 package org.camunda.bpm.engine.cassandra.provider;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,11 +19,18 @@ import org.camunda.bpm.engine.ProcessEngineException;
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.indexes.AbstractIndexHandler;
 import org.camunda.bpm.engine.cassandra.provider.indexes.AbstractOrderedIndexHandler;
+import org.camunda.bpm.engine.cassandra.provider.metrics.CommitMetrics;
+import org.camunda.bpm.engine.cassandra.provider.metrics.CommitStatistics;
+import org.camunda.bpm.engine.cassandra.provider.metrics.CommitStatistics.BatchType;
+import org.camunda.bpm.engine.cassandra.provider.metrics.HandlerMetrics;
+import org.camunda.bpm.engine.cassandra.provider.operation.AbstractEntityOperationHandler;
+import org.camunda.bpm.engine.cassandra.provider.operation.BulkDeleteByteArray;
 import org.camunda.bpm.engine.cassandra.provider.operation.BulkDeleteDeployment;
 import org.camunda.bpm.engine.cassandra.provider.operation.BulkDeleteJobDefinitionsByProcessDefinitionId;
 import org.camunda.bpm.engine.cassandra.provider.operation.BulkDeleteProcessDefinitionByDeploymentId;
 import org.camunda.bpm.engine.cassandra.provider.operation.BulkDeleteResourcesByDeploymentId;
 import org.camunda.bpm.engine.cassandra.provider.operation.BulkOperationHandler;
+import org.camunda.bpm.engine.cassandra.provider.operation.ByteArrayOperations;
 import org.camunda.bpm.engine.cassandra.provider.operation.CompositeEntityLoader;
 import org.camunda.bpm.engine.cassandra.provider.operation.DeploymentOperations;
 import org.camunda.bpm.engine.cassandra.provider.operation.EntityOperationHandler;
@@ -32,12 +43,14 @@ import org.camunda.bpm.engine.cassandra.provider.operation.ProcessDefinitionOper
 import org.camunda.bpm.engine.cassandra.provider.operation.ProcessInstanceLoader;
 import org.camunda.bpm.engine.cassandra.provider.operation.ResourceOperations;
 import org.camunda.bpm.engine.cassandra.provider.operation.VariableEntityOperations;
+import org.camunda.bpm.engine.cassandra.provider.query.SelectEmbeddedEntitiesByExecutionId;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectEventSubscriptionsByExecutionAndType;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectExclusiveJobsToExecute;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectExecutionsByQueryCriteria;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectJob;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectJobsByConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectJobsByExecutionId;
+import org.camunda.bpm.engine.cassandra.provider.query.SelectJobsByQueryCriteria;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectLatestProcessDefinitionByKeyQueryHandler;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectLatestProcessDefinitionByKeyWithoutTenantIdQueryHandler;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectListQueryHandler;
@@ -47,6 +60,7 @@ import org.camunda.bpm.engine.cassandra.provider.query.SelectProcessDefinitionsB
 import org.camunda.bpm.engine.cassandra.provider.query.SelectProcessInstanceByQueryCriteria;
 import org.camunda.bpm.engine.cassandra.provider.query.SelectResourcesByDeploymentId;
 import org.camunda.bpm.engine.cassandra.provider.query.SingleResultQueryHandler;
+import org.camunda.bpm.engine.cassandra.provider.serializer.ByteArrayEntitySerializer;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.serializer.DeploymentEntitySerializer;
 import org.camunda.bpm.engine.cassandra.provider.serializer.EventSubscriptionSerializer;
@@ -56,8 +70,10 @@ import org.camunda.bpm.engine.cassandra.provider.serializer.JobEntitySerializer;
 import org.camunda.bpm.engine.cassandra.provider.serializer.ProcessDefinitionSerializer;
 import org.camunda.bpm.engine.cassandra.provider.serializer.ResourceEntitySerializer;
 import org.camunda.bpm.engine.cassandra.provider.serializer.VariableEntitySerializer;
+import org.camunda.bpm.engine.cassandra.provider.table.ByteArrayTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.table.DeploymentTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.table.IndexTableHandler;
+import org.camunda.bpm.engine.cassandra.provider.table.JobBucketLeaseTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.table.JobDefinitionTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.table.OrderedIndexTableHandler;
@@ -65,15 +81,19 @@ import org.camunda.bpm.engine.cassandra.provider.table.ProcessDefinitionTableHan
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessInstanceTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.table.ResourceTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.table.TableHandler;
+import org.camunda.bpm.engine.cassandra.provider.table.TableOptions;
 import org.camunda.bpm.engine.cassandra.provider.type.EventSubscriptionTypeHandler;
 import org.camunda.bpm.engine.cassandra.provider.type.ExecutionTypeHandler;
 import org.camunda.bpm.engine.cassandra.provider.type.UDTypeHandler;
+import org.camunda.bpm.engine.cassandra.provider.type.UserTypeChangeListener;
 import org.camunda.bpm.engine.cassandra.provider.type.VariableTypeHandler;
 import org.camunda.bpm.engine.impl.context.Context;
 import org.camunda.bpm.engine.impl.db.AbstractPersistenceSession;
 import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.db.EntityLoadListener;
 import org.camunda.bpm.engine.impl.db.entitymanager.operation.DbBulkOperation;
 import org.camunda.bpm.engine.impl.db.entitymanager.operation.DbEntityOperation;
+import org.camunda.bpm.engine.impl.persistence.entity.ByteArrayEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.DeploymentEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.EventSubscriptionEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
@@ -88,10 +108,14 @@ import org.camunda.bpm.engine.impl.persistence.entity.VariableInstanceEntity;
 
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.UDTValue;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.utils.Bytes;
 
 public class CassandraPersistenceSession extends AbstractPersistenceSession {
 
@@ -112,8 +136,11 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
   protected Map<Class<?>, EntityOperationHandler<?>> operations = new HashMap<Class<?>, EntityOperationHandler<?>>();
 
   protected BatchStatement varietyBatch = new BatchStatement();
+  protected List<Statement> unbatchedStatements = new ArrayList<Statement>(); //written before the batches, e.g. byte array chunks
   protected Map<String, LockedBatch<?>> lockedBatches = new HashMap<String, LockedBatch<?>>();
   protected Map<String, Map<String, LoadedCompositeEntity>> loadedEntityCache = new HashMap<String, Map<String, LoadedCompositeEntity>>();
+  protected Map<String, ProcessInstanceCache.Changes> processInstanceChanges = new HashMap<String, ProcessInstanceCache.Changes>();
+  protected CommitStatistics commitStatistics = null; //statistics of the running commit, only if enabled
 
   static {
     serializers.put(EventSubscriptionEntity.class, new EventSubscriptionSerializer());
@@ -124,6 +151,7 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     serializers.put(VariableInstanceEntity.class, new VariableEntitySerializer());
     serializers.put(JobEntity.class, new JobEntitySerializer());
     serializers.put(JobDefinitionEntity.class, new JobDefinitionEntitySerializer());
+    serializers.put(ByteArrayEntity.class, new ByteArrayEntitySerializer());
 
     udtHandlers.put(ExecutionEntity.class, new ExecutionTypeHandler());
     udtHandlers.put(VariableInstanceEntity.class, new VariableTypeHandler());
@@ -137,6 +165,8 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     tableHandlers.add(new JobTableHandler());
     tableHandlers.add(new JobDefinitionTableHandler());
     tableHandlers.add(new OrderedIndexTableHandler());
+    tableHandlers.add(new ByteArrayTableHandler());
+    tableHandlers.add(new JobBucketLeaseTableHandler());
 
     compositeEntitiyLoader.put(ProcessInstanceLoader.NAME, new ProcessInstanceLoader());
 
@@ -153,17 +183,27 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     listResultQueryHandlers.put("selectJobsByConfiguration", new SelectJobsByConfiguration());
     listResultQueryHandlers.put("selectExclusiveJobsToExecute", new SelectExclusiveJobsToExecute());
     listResultQueryHandlers.put("selectJobsByExecutionId", new SelectJobsByExecutionId());
+    listResultQueryHandlers.put("selectJobByQueryCriteria", new SelectJobsByQueryCriteria());
     listResultQueryHandlers.put("selectLatestProcessDefinitionByKey", new SelectLatestProcessDefinitionByKeyQueryHandler());
+    listResultQueryHandlers.put("selectEventSubscriptionsByExecution", new SelectEmbeddedEntitiesByExecutionId<EventSubscriptionEntity>(ProcessInstanceLoader.EVENT_SUBSCRIPTIONS));
+    listResultQueryHandlers.put("selectVariablesByExecutionId", new SelectEmbeddedEntitiesByExecutionId<VariableInstanceEntity>(ProcessInstanceLoader.VARIABLES));
 
     bulkOperationHandlers.put("deleteDeployment", new BulkDeleteDeployment());
     bulkOperationHandlers.put("deleteResourcesByDeploymentId", new BulkDeleteResourcesByDeploymentId());
     bulkOperationHandlers.put("deleteProcessDefinitionsByDeploymentId", new BulkDeleteProcessDefinitionByDeploymentId());
     bulkOperationHandlers.put("deleteJobDefinitionsByProcessDefinitionId", new BulkDeleteJobDefinitionsByProcessDefinitionId());
+    bulkOperationHandlers.put("deleteByteArrayNoRevisionCheck", new BulkDeleteByteArray());
 
   }
 
   protected boolean processInstanceVersionIncremented = false;
 
+  protected static boolean asyncCommit = false;
+  protected static boolean batchPerPartition = false;
+  protected static int maxStatementsPerBatch = 100;
+  protected static int maxBytesPerBatch = CassandraProcessEngineConfiguration.DEFAULT_MAX_BYTES_PER_BATCH;
+  protected static ProcessInstanceCache processInstanceCache = null;
+
   /**
    * This method is called after the session is initialized, but before the engine finished initializing.
    * so it can be used for any initialization that requires cassandra session,
@@ -172,18 +212,49 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
    * @param config
    */
   public static void staticInit(CassandraProcessEngineConfiguration config) {
-    //TODO- add everything that needs to prepare statements
+    asyncCommit = config.isAsyncCommit();
+    batchPerPartition = config.isBatchPerPartition();
+    maxStatementsPerBatch = config.getMaxStatementsPerBatch();
+    maxBytesPerBatch = config.getMaxBytesPerBatch();
+    if(config.getProcessInstanceCacheSize() > 0) {
+      processInstanceCache = new ProcessInstanceCache(config.getProcessInstanceCacheSize(), config.getProcessInstanceCacheExpirySeconds());
+    }
+    else {
+      processInstanceCache = null;
+    }
+
+    ConsistencyPolicy.prepare(config);
+    HandlerMetrics.prepare(config);
+    CommitMetrics.prepare(config);
+    PreparedStatementRegistry.clear();
     EventSubscriptionOperations.prepare(config);
     ProcessDefinitionOperations.prepare(config);
     ResourceOperations.prepare(config);
     DeploymentOperations.prepare(config);
     ExecutionEntityOperations.prepare(config);
     VariableEntityOperations.prepare(config);
+    JobShardRegistry.prepare(config);
     JobOperations.prepare(config);
     JobDefinitionOperations.prepare(config);
+    ByteArrayOperations.prepare(config);
     SelectNextJobsToExecute.prepare(config);
     AbstractIndexHandler.prepare(config);
     AbstractOrderedIndexHandler.prepare(config);
+    ProcessInstanceBatch.prepare(config);
+    ProcessInstanceLoader.prepare(config);
+    SelectLatestProcessDefinitionByKeyQueryHandler.prepare(config);
+    SelectLatestProcessDefinitionByKeyWithoutTenantIdQueryHandler.prepare(config);
+    UserTypeChangeListener.prepare(config, udtHandlers.values());
+  }
+
+  /**
+   * Called when the engine is closed, before the cassandra session is closed.
+   */
+  public static void staticClose() {
+    SelectNextJobsToExecute.close();
+    UserTypeChangeListener.close();
+    HandlerMetrics.close();
+    CommitMetrics.close();
   }
 
   public CassandraPersistenceSession(com.datastax.driver.core.Session session) {
@@ -199,29 +270,52 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     operations.put(MessageEntity.class, new JobOperations(this));
     operations.put(TimerEntity.class, new JobOperations(this));
     operations.put(JobDefinitionEntity.class, new JobDefinitionOperations(this));
+    operations.put(ByteArrayEntity.class, new ByteArrayOperations(this));
 
   }
 
   @SuppressWarnings({ "unchecked", "rawtypes" })
   public List<?> selectList(String statement, Object parameter) {
-    LOG.log(Level.FINE, "selectList for statement '"+statement+"' parameter: "+parameter.toString());
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "selectList for statement '"+statement+"' parameter: "+parameter.toString());
+    }
     SelectListQueryHandler handler = listResultQueryHandlers.get(statement);
     if(handler == null) {
       LOG.log(Level.WARNING, "unhandled select statement '"+statement+"'");
       return Collections.emptyList();
     }
     else {
-      return handler.executeQuery(this, parameter);
+      long start = HandlerMetrics.start();
+      boolean failed = true;
+      try {
+        List<?> result = handler.executeQuery(this, parameter);
+        failed = false;
+        return result;
+      }
+      finally {
+        HandlerMetrics.stop(HandlerMetrics.SELECT_LIST, statement, start, failed);
+      }
     }
   }
 
   @SuppressWarnings("unchecked")
   public <T extends DbEntity> T selectById(Class<T> type, String id) {
-    LOG.log(Level.FINE, "selectById for type '"+type.getSimpleName()+"' id '" +id+"'");
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "selectById for type '"+type.getSimpleName()+"' id '" +id+"'");
+    }
 
     EntityOperationHandler<?> entityOperations = operations.get(type);
     if(entityOperations != null) {
-      DbEntity loadedEntity = entityOperations.getEntityById(this, id);
+      long start = HandlerMetrics.start();
+      boolean failed = true;
+      DbEntity loadedEntity;
+      try {
+        loadedEntity = entityOperations.getEntityById(this, id);
+        failed = false;
+      }
+      finally {
+        HandlerMetrics.stop(HandlerMetrics.SELECT_BY_ID, type.getSimpleName(), start, failed);
+      }
       fireEntityLoaded(loadedEntity);
       return (T) loadedEntity;
     }
@@ -230,6 +324,50 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     return null;
   }
 
+  /**
+   * Public for query handlers that build entities from rows other than the entity table, e.g. a denormalized index.
+   */
+  @Override
+  public void fireEntityLoaded(Object result) {
+    super.fireEntityLoaded(result);
+  }
+
+  /**
+   * Selects several entities of the same type at once, the result is in the order of the ids.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends DbEntity> List<T> selectByIds(Class<T> type, List<String> ids) {
+    EntityOperationHandler<?> entityOperations = operations.get(type);
+    if(!(entityOperations instanceof AbstractEntityOperationHandler)) {
+      List<T> result = new ArrayList<T>();
+      for (String id : ids) {
+        T entity = selectById(type, id);
+        if(entity != null) {
+          result.add(entity);
+        }
+      }
+      return result;
+    }
+
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "selectByIds for type '"+type.getSimpleName()+"', "+ids.size()+" ids");
+    }
+    long start = HandlerMetrics.start();
+    boolean failed = true;
+    List<T> result;
+    try {
+      result = ((AbstractEntityOperationHandler<T>) entityOperations).getEntitiesByIds(this, ids);
+      failed = false;
+    }
+    finally {
+      HandlerMetrics.stop(HandlerMetrics.SELECT_BY_ID, type.getSimpleName(), start, failed);
+    }
+    for (T entity : result) {
+      fireEntityLoaded(entity);
+    }
+    return result;
+  }
+
   public LoadedCompositeEntity selectCompositeById(String compositeName, String id) {
     CompositeEntityLoader loader = compositeEntitiyLoader.get(compositeName);
     if(loader == null) {
@@ -241,7 +379,16 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
       return loadedEntityCache.get(compositeName).get(id);
     }
 
-    LoadedCompositeEntity composite = loader.getEntityById(this, id);
+    long start = HandlerMetrics.start();
+    boolean failed = true;
+    LoadedCompositeEntity composite;
+    try {
+      composite = loader.getEntityById(this, id);
+      failed = false;
+    }
+    finally {
+      HandlerMetrics.stop(HandlerMetrics.SELECT_COMPOSITE, compositeName, start, failed);
+    }
     if(composite == null) {
       return null;
     }
@@ -252,9 +399,29 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     loadedEntityCache.get(compositeName).put(id, composite);
 
     processLoadedComposite(composite);
+    composite.setEntityLoadListener(new EntityLoadListener() {
+      public void onEntityLoaded(DbEntity entity) {
+        fireEntityLoaded(entity);
+      }
+    });
     return composite;
   }
 
+  /**
+   * Finds a composite loaded in this session that holds the given embedded entity.
+   */
+  public LoadedCompositeEntity findLoadedComposite(String compositeName, String embeddedName, String embeddedId) {
+    Map<String, LoadedCompositeEntity> composites = loadedEntityCache.get(compositeName);
+    if(composites != null) {
+      for (LoadedCompositeEntity composite : composites.values()) {
+        if(composite.contains(embeddedName, embeddedId)) {
+          return composite;
+        }
+      }
+    }
+    return null;
+  }
+
   protected void processLoadedComposite(LoadedCompositeEntity composite) {
     DbEntity mainEntity = composite.getPrimaryEntity();
     boolean isMainEntityEventFired = false;
@@ -272,11 +439,22 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
   }
 
   public Object selectOne(String statement, Object parameter) {
-    LOG.log(Level.FINE, "selectOne for statement '"+statement+"' parameter: "+parameter.toString());
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "selectOne for statement '"+statement+"' parameter: "+parameter.toString());
+    }
 
     SingleResultQueryHandler<?> queryHandler = singleResultQueryHandlers.get(statement);
     if(queryHandler != null) {
-      DbEntity result = queryHandler.executeQuery(this, parameter);
+      long start = HandlerMetrics.start();
+      boolean failed = true;
+      DbEntity result;
+      try {
+        result = queryHandler.executeQuery(this, parameter);
+        failed = false;
+      }
+      finally {
+        HandlerMetrics.stop(HandlerMetrics.SELECT_ONE, statement, start, failed);
+      }
       fireEntityLoaded(result);
       return result;
     }
@@ -285,6 +463,9 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
       String tableName = ((Map<String, String>) parameter).get("tableName");
       return cassandraSession.execute(QueryBuilder.select().countAll().from(tableName)).one().getLong(0);
     }
+    else if ("selectJobCountByQueryCriteria".equals(statement)) {
+      return (long) selectList("selectJobByQueryCriteria", parameter).size();
+    }
     else {
       LOG.warning("unknown query "+statement);
       return null;
@@ -301,14 +482,284 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     //apply all batches in the transaction with the same timestamp
     long timestamp = ((CassandraProcessEngineConfiguration)Context.getProcessEngineConfiguration())
         .getCluster().getConfiguration().getPolicies().getTimestampGenerator().next();
+    if(CommitMetrics.isEnabled()) {
+      commitStatistics = new CommitStatistics(cassandraSession.getCluster().getConfiguration().getProtocolOptions().getProtocolVersionEnum());
+    }
+    long start = HandlerMetrics.start();
+    boolean failed = true;
+    try {
+      flushUnbatchedStatements(timestamp);
+      if(asyncCommit){
+        commitAsync(timestamp);
+      }
+      else {
+        commitSequential(timestamp);
+      }
+      failed = false;
+    }
+    catch(RuntimeException e) {
+      evictCachedProcessInstances();
+      throw e;
+    }
+    finally {
+      HandlerMetrics.stop(HandlerMetrics.COMMIT, HandlerMetrics.COMMIT_TOTAL, start, failed);
+      CommitMetrics.record(commitStatistics, failed);
+      commitStatistics = null;
+    }
+    updateCachedProcessInstances();
+  }
+
+  protected void commitSequential(long timestamp) {
     for (LockedBatch<?> batchWithLocking : lockedBatches.values()) {
       if(!batchWithLocking.isEmpty()){
-        flushBatch(batchWithLocking.getBatch(), timestamp);
-        flushBatch(batchWithLocking.getIndexBatch(), timestamp);
+        long start = HandlerMetrics.start();
+        boolean failed = true;
+        try {
+          flushBatch(batchWithLocking, timestamp);
+          failed = false;
+        }
+        finally {
+          HandlerMetrics.stop(HandlerMetrics.COMMIT, HandlerMetrics.COMMIT_LOCK, start, failed);
+        }
+        if(batchWithLocking.getIndexBatch() != null) {
+          start = HandlerMetrics.start();
+          failed = true;
+          try {
+            flushBatch(batchWithLocking.getIndexBatch(), timestamp);
+            failed = false;
+          }
+          finally {
+            HandlerMetrics.stop(HandlerMetrics.COMMIT, HandlerMetrics.COMMIT_WRITE, start, failed);
+          }
+        }
       }
     }
     if(!varietyBatch.getStatements().isEmpty()){
-      flushBatch(varietyBatch, timestamp);
+      long start = HandlerMetrics.start();
+      boolean failed = true;
+      try {
+        for (ResultSetFuture result : flushVarietyBatchAsync(timestamp)) {
+          result.getUninterruptibly();
+        }
+        failed = false;
+      }
+      finally {
+        HandlerMetrics.stop(HandlerMetrics.COMMIT, HandlerMetrics.COMMIT_WRITE, start, failed);
+      }
+    }
+  }
+
+  /**
+   * Pipelined commit. All conditional process instance batches are sent at once,
+   * only when they have been applied the index batches and the variety batch are sent, again all at once.
+   * This makes the commit cost roughly one LWT round trip plus one parallel round trip.
+   *
+   * If any of the process instance batches was not applied an {@link OptimisticLockingException} is thrown
+   * and the variety batch is not written, same as for the sequential commit.
+   * Index batches of the process instances that were applied are still written.
+   */
+  protected void commitAsync(long timestamp) {
+    List<LockedBatch<?>> batches = new ArrayList<LockedBatch<?>>();
+    List<ResultSetFuture> lockResults = new ArrayList<ResultSetFuture>();
+    long start = HandlerMetrics.start();
+    for (LockedBatch<?> batchWithLocking : lockedBatches.values()) {
+      if(!batchWithLocking.isEmpty()){
+        batches.add(batchWithLocking);
+        BatchStatement batch = batchWithLocking.getBatch();
+        countBatch(BatchType.LOCKED, batch);
+        lockResults.add(flushBatchAsync(batch, timestamp));
+      }
+    }
+
+    LockedBatch<?> rejectedBatch = null;
+    List<ResultSetFuture> results = new ArrayList<ResultSetFuture>();
+    boolean failed = true;
+    try {
+      for (int i = 0; i < batches.size(); i++) {
+        List<Row> lockResult = lockResults.get(i).getUninterruptibly().all();
+        countLwtResult(lockResult);
+        if(isApplied(lockResult)) {
+          BatchStatement indexBatch = batches.get(i).getIndexBatch();
+          countBatch(BatchType.INDEX, indexBatch);
+          ResultSetFuture indexResult = flushBatchAsync(indexBatch, timestamp);
+          if(indexResult != null) {
+            results.add(indexResult);
+          }
+        }
+        else if(rejectedBatch == null) {
+          rejectedBatch = batches.get(i);
+        }
+      }
+      failed = false;
+    }
+    finally {
+      //includes sending the index batches of the applied process instances, which does not wait for a response
+      if(!batches.isEmpty()) {
+        HandlerMetrics.stop(HandlerMetrics.COMMIT, HandlerMetrics.COMMIT_LOCK, start, failed);
+      }
+    }
+
+    start = HandlerMetrics.start();
+    if(rejectedBatch == null && !varietyBatch.getStatements().isEmpty()){
+      results.addAll(flushVarietyBatchAsync(timestamp));
+    }
+
+    failed = true;
+    try {
+      for (ResultSetFuture result : results) {
+        result.getUninterruptibly();
+      }
+      failed = false;
+    }
+    finally {
+      if(!results.isEmpty()) {
+        HandlerMetrics.stop(HandlerMetrics.COMMIT, HandlerMetrics.COMMIT_WRITE, start, failed);
+      }
+    }
+
+    if(rejectedBatch != null) {
+      throw optimisticLockingException(rejectedBatch);
+    }
+  }
+
+  /**
+   * Writes the statements that are too large for a batch, all at once, before any of the batches that refer to them.
+   */
+  protected void flushUnbatchedStatements(long timestamp) {
+    if(unbatchedStatements.isEmpty()) {
+      return;
+    }
+    long start = HandlerMetrics.start();
+    boolean failed = true;
+    try {
+      List<ResultSetFuture> results = new ArrayList<ResultSetFuture>();
+      for (Statement statement : unbatchedStatements) {
+        if(commitStatistics != null) {
+          commitStatistics.addStatement(BatchType.UNBATCHED, statement);
+        }
+        statement.setDefaultTimestamp(timestamp);
+        results.add(cassandraSession.executeAsync(statement));
+      }
+      for (ResultSetFuture result : results) {
+        result.getUninterruptibly();
+      }
+      failed = false;
+    }
+    finally {
+      HandlerMetrics.stop(HandlerMetrics.COMMIT, HandlerMetrics.COMMIT_WRITE, start, failed);
+    }
+  }
+
+  protected Set<String> getChangedProcessInstanceIds() {
+    Set<String> ids = new HashSet<String>(processInstanceChanges.keySet());
+    for (Map.Entry<String, LockedBatch<?>> lockedBatch : lockedBatches.entrySet()) {
+      if(!lockedBatch.getValue().isEmpty()) {
+        ids.add(lockedBatch.getKey());
+      }
+    }
+    return ids;
+  }
+
+  protected void updateCachedProcessInstances() {
+    if(processInstanceCache == null) {
+      return;
+    }
+    for (String id : getChangedProcessInstanceIds()) {
+      ProcessInstanceCache.Changes changes = processInstanceChanges.get(id);
+      if(changes == null) {
+        changes = new ProcessInstanceCache.Changes();
+      }
+      LockedBatch<?> lockedBatch = lockedBatches.get(id);
+      Integer lockedVersion = null;
+      if(lockedBatch != null && !lockedBatch.isEmpty() && lockedBatch.getVersion() != null) {
+        lockedVersion = Integer.valueOf(lockedBatch.getVersion());
+      }
+      processInstanceCache.update(id, changes, lockedVersion);
+    }
+  }
+
+  protected void evictCachedProcessInstances() {
+    if(processInstanceCache == null) {
+      return;
+    }
+    for (String id : getChangedProcessInstanceIds()) {
+      processInstanceCache.invalidate(id);
+    }
+  }
+
+  private List<ResultSetFuture> flushVarietyBatchAsync(long timestamp) {
+    List<ResultSetFuture> results = new ArrayList<ResultSetFuture>();
+    if(!batchPerPartition) {
+      countBatch(BatchType.VARIETY, varietyBatch);
+      results.add(flushBatchAsync(ConsistencyPolicy.forWrite(varietyBatch), timestamp));
+      return results;
+    }
+    for (BatchStatement batch : splitVarietyBatch()) {
+      countBatch(BatchType.VARIETY, batch);
+      results.add(flushBatchAsync(ConsistencyPolicy.forWrite(batch), timestamp));
+    }
+    return results;
+  }
+
+  /**
+   * Splits the variety batch by partition. Statements with a known routing key are grouped into
+   * unlogged batches per partition, each holding at most maxStatementsPerBatch statements and maxBytesPerBatch bytes,
+   * a single larger statement is sent on its own.
+   * Statements without a routing key (plain CQL strings, query builder statements without table metadata)
+   * stay together in a single logged batch.
+   *
+   * The unlogged batches are not atomic with each other. If some of them fail, index rows without their entity
+   * are filtered on read, but an entity written without its index rows (e.g. a job without its acquisition index entry)
+   * is not found through the index. That is why the split is disabled by default.
+   */
+  protected List<BatchStatement> splitVarietyBatch() {
+    BatchStatement loggedBatch = new BatchStatement();
+    Map<String, List<Statement>> partitions = new LinkedHashMap<String, List<Statement>>();
+    for (Statement statement : varietyBatch.getStatements()) {
+      ByteBuffer routingKey = statement.getRoutingKey();
+      if(routingKey == null) {
+        loggedBatch.add(statement);
+        continue;
+      }
+      String partition = statement.getKeyspace() + ":" + Bytes.toHexString(routingKey);
+      List<Statement> partitionStatements = partitions.get(partition);
+      if(partitionStatements == null) {
+        partitionStatements = new ArrayList<Statement>();
+        partitions.put(partition, partitionStatements);
+      }
+      partitionStatements.add(statement);
+    }
+
+    List<BatchStatement> batches = new ArrayList<BatchStatement>();
+    if(loggedBatch.size() > 0) {
+      batches.add(loggedBatch);
+    }
+    ProtocolVersion protocolVersion = cassandraSession.getCluster().getConfiguration().getProtocolOptions().getProtocolVersionEnum();
+    for (List<Statement> partitionStatements : partitions.values()) {
+      BatchStatement batch = null;
+      long batchBytes = 0;
+      for (Statement statement : partitionStatements) {
+        long statementBytes = CommitStatistics.getSize(statement, protocolVersion);
+        if(batch == null || batch.size() >= maxStatementsPerBatch || batchBytes + statementBytes > maxBytesPerBatch) {
+          batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+          batchBytes = 0;
+          batches.add(batch);
+        }
+        batch.add(statement);
+        batchBytes += statementBytes;
+      }
+    }
+    return batches;
+  }
+
+  private void flushBatch(LockedBatch<?> batchWithLocking, long timestamp) {
+    BatchStatement batch = batchWithLocking.getBatch();
+    countBatch(BatchType.LOCKED, batch);
+    batch.setDefaultTimestamp(timestamp);
+    List<Row> result = cassandraSession.execute(batch).all();
+    countLwtResult(result);
+    if(!isApplied(result)) {
+      throw optimisticLockingException(batchWithLocking);
     }
   }
 
@@ -316,16 +767,45 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     if(batch==null){
       return;
     }
+    countBatch(BatchType.INDEX, batch);
+    batch.setDefaultTimestamp(timestamp);
+    if(!isApplied(cassandraSession.execute(batch).all())) {
+      throw optimisticLockingException(lockedBatches.values().iterator().next());
+    }
+  }
+
+  private ResultSetFuture flushBatchAsync(BatchStatement batch, long timestamp) {
+    if(batch==null){
+      return null;
+    }
     batch.setDefaultTimestamp(timestamp);
-    List<Row> rows = cassandraSession.execute(batch).all();
+    return cassandraSession.executeAsync(batch);
+  }
+
+  private void countBatch(BatchType type, BatchStatement batch) {
+    if(commitStatistics != null) {
+      commitStatistics.addBatch(type, batch);
+    }
+  }
+
+  private void countLwtResult(List<Row> rows) {
+    if(commitStatistics != null) {
+      commitStatistics.addLwtResult(rows);
+    }
+  }
+
+  private boolean isApplied(List<Row> rows) {
     for (Row row : rows) {
       if(!row.getBool("[applied]")) {
-        LockedBatch lb = lockedBatches.values().iterator().next();
-
-        LOG.log(Level.FINE, "flushBatch optimistic locking exception, version: "+ lb.getVersion());
-        throw new OptimisticLockingException("Process instance was updated by another transaction concurrently.");
+        return false;
       }
     }
+    return true;
+  }
+
+  private OptimisticLockingException optimisticLockingException(LockedBatch<?> batch) {
+    LOG.log(Level.FINE, "flushBatch optimistic locking exception, version: "+ batch.getVersion());
+    return new OptimisticLockingException("Process instance was updated by another transaction concurrently.");
   }
 
   public void rollback() {
@@ -347,13 +827,23 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
   @Override
   @SuppressWarnings({ "rawtypes", "unchecked" })
   protected void insertEntity(DbEntityOperation operation) {
-    LOG.log(Level.FINE, "insertEntity, operation: "+operation.toString());
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "insertEntity, operation: "+operation.toString());
+    }
     EntityOperationHandler entityOperations = operations.get(operation.getEntityType());
     if(entityOperations == null) {
       LOG.log(Level.WARNING, "unhandled INSERT '"+operation+"'");
     }
     else {
-      entityOperations.insert(this, operation.getEntity());
+      long start = HandlerMetrics.start();
+      boolean failed = true;
+      try {
+        entityOperations.insert(this, operation.getEntity());
+        failed = false;
+      }
+      finally {
+        HandlerMetrics.stop(HandlerMetrics.INSERT, operation.getEntityType().getSimpleName(), start, failed);
+      }
     }
 
   }
@@ -361,19 +851,31 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
   @Override
   @SuppressWarnings({ "rawtypes", "unchecked" })
   protected void deleteEntity(DbEntityOperation operation) {
-    LOG.log(Level.FINE, "deleteEntity, operation: "+operation.toString());
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "deleteEntity, operation: "+operation.toString());
+    }
     EntityOperationHandler entityOperations = operations.get(operation.getEntityType());
     if(entityOperations == null) {
       LOG.log(Level.WARNING, "unhandled DELETE '"+operation+"'");
     }
     else {
-      entityOperations.delete(this, operation.getEntity());
+      long start = HandlerMetrics.start();
+      boolean failed = true;
+      try {
+        entityOperations.delete(this, operation.getEntity());
+        failed = false;
+      }
+      finally {
+        HandlerMetrics.stop(HandlerMetrics.DELETE, operation.getEntityType().getSimpleName(), start, failed);
+      }
     }
   }
 
   @Override
   protected void deleteBulk(DbBulkOperation operation) {
-    LOG.log(Level.FINE, "deleteBulk, operation: "+operation.toString());
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "deleteBulk, operation: "+operation.toString());
+    }
     BulkOperationHandler handler = bulkOperationHandlers.get(operation.getStatement());
     if(handler == null) {
       LOG.log(Level.WARNING, "unhandled BULK delete '"+operation+"'");
@@ -386,13 +888,23 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
   @Override
   @SuppressWarnings({ "rawtypes", "unchecked" })
   protected void updateEntity(DbEntityOperation operation) {
-    LOG.log(Level.FINE, "updateEntity, operation: "+operation.toString());
+    if(LOG.isLoggable(Level.FINE)) {
+      LOG.log(Level.FINE, "updateEntity, operation: "+operation.toString());
+    }
     EntityOperationHandler entityOperations = operations.get(operation.getEntityType());
     if(entityOperations == null) {
       LOG.log(Level.WARNING, "unhandled UPDATE '"+operation+"'");
     }
     else {
-      entityOperations.update(this, operation.getEntity());
+      long start = HandlerMetrics.start();
+      boolean failed = true;
+      try {
+        entityOperations.update(this, operation.getEntity());
+        failed = false;
+      }
+      finally {
+        HandlerMetrics.stop(HandlerMetrics.UPDATE, operation.getEntityType().getSimpleName(), start, failed);
+      }
     }
   }
 
@@ -427,8 +939,15 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
       typeHandler.createType(cassandraSession);
     }
 
+    CassandraProcessEngineConfiguration config = (CassandraProcessEngineConfiguration) Context.getProcessEngineConfiguration();
     for (TableHandler tableHandler : tableHandlers) {
       tableHandler.createTable(cassandraSession);
+      for (String tableName : tableHandler.getTableNames()) {
+        TableOptions options = config.getTableOptions(tableName);
+        if (options != null) {
+          options.apply(cassandraSession, tableName);
+        }
+      }
     }
   }
 
@@ -550,11 +1069,50 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     batch.addIndexStatement(statement);
   }
 
+  /**
+   * Records a change of an embedded entity of a process instance row, so that it can be applied to the
+   * process instance cache after a successful commit. A null value records the removal of the entity.
+   */
+  public void addProcessInstanceChange(String processInstanceId, String column, String id, UDTValue value) {
+    if(processInstanceCache == null) {
+      return;
+    }
+    getProcessInstanceChanges(processInstanceId).put(column, id, value);
+  }
+
+  public void addProcessInstanceDelete(String processInstanceId) {
+    if(processInstanceCache == null) {
+      return;
+    }
+    getProcessInstanceChanges(processInstanceId).setDeleted();
+  }
+
+  protected ProcessInstanceCache.Changes getProcessInstanceChanges(String processInstanceId) {
+    ProcessInstanceCache.Changes changes = processInstanceChanges.get(processInstanceId);
+    if(changes == null) {
+      changes = new ProcessInstanceCache.Changes();
+      processInstanceChanges.put(processInstanceId, changes);
+    }
+    return changes;
+  }
+
+  public static ProcessInstanceCache getProcessInstanceCache() {
+    return processInstanceCache;
+  }
+
   public void batchShouldNotLock(String objectId) {
     LockedBatch<?> batch = lockedBatches.get(objectId);
     batch.setShouldNotLock();
   }
 
+  /**
+   * Makes sure the locked batch is sent with its version check, even if it has no other statements.
+   */
+  public void batchShouldLock(String objectId) {
+    LockedBatch<?> batch = lockedBatches.get(objectId);
+    batch.setShouldLock();
+  }
+
   public void addStatement(Statement statement) {
     if(statement==null){
       return;
@@ -562,6 +1120,18 @@ public class CassandraPersistenceSession extends AbstractPersistenceSession {
     varietyBatch.add(statement);
   }
 
+  /**
+   * Adds a statement that is written on its own on commit, before the batches.
+   * For large writes that would push a batch past the server limits and that are not visible
+   * until a batched statement refers to them.
+   */
+  public void addUnbatchedStatement(Statement statement) {
+    if(statement==null){
+      return;
+    }
+    unbatchedStatements.add(statement);
+  }
+
   @Override
   protected void dbSchemaCreateDmn() {
     // not supported
@@ -0,0 +1,81 @@
+package org.camunda.bpm.engine.cassandra.provider;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Consistency levels by kind of statement, as configured on the {@link CassandraProcessEngineConfiguration}.
+ *
+ * The default level applies to every prepared statement and to the writes that are not covered by a more specific level,
+ * reads of queries and of the job acquisition are set where the statements are bound, the batches when they are flushed.
+ * A level that is not configured (null) leaves the statement at the driver default.
+ */
+public class ConsistencyPolicy {
+
+  protected static ConsistencyLevel defaultConsistency;
+  protected static ConsistencyLevel serialConsistency;
+  protected static ConsistencyLevel processInstanceWriteConsistency;
+  protected static ConsistencyLevel indexWriteConsistency;
+  protected static ConsistencyLevel jobAcquisitionConsistency;
+  protected static ConsistencyLevel queryConsistency;
+
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    defaultConsistency = config.getDefaultConsistency();
+    serialConsistency = config.getSerialConsistency();
+    processInstanceWriteConsistency = config.getProcessInstanceWriteConsistency();
+    indexWriteConsistency = config.getIndexWriteConsistency();
+    jobAcquisitionConsistency = config.getJobAcquisitionConsistency();
+    queryConsistency = config.getQueryConsistency();
+  }
+
+  public static PreparedStatement applyDefault(PreparedStatement statement) {
+    if(defaultConsistency != null) {
+      statement.setConsistencyLevel(defaultConsistency);
+    }
+    if(serialConsistency != null) {
+      statement.setSerialConsistencyLevel(serialConsistency);
+    }
+    return statement;
+  }
+
+  /**
+   * Writes of the variety batch, i.e. everything but the process instances and their indexes.
+   */
+  public static BatchStatement forWrite(BatchStatement batch) {
+    return apply(batch, defaultConsistency);
+  }
+
+  /**
+   * Conditional process instance batches, the serial consistency applies to the version check.
+   */
+  public static BatchStatement forProcessInstanceWrite(BatchStatement batch) {
+    apply(batch, processInstanceWriteConsistency != null ? processInstanceWriteConsistency : defaultConsistency);
+    if(serialConsistency != null) {
+      batch.setSerialConsistencyLevel(serialConsistency);
+    }
+    return batch;
+  }
+
+  public static BatchStatement forIndexWrite(BatchStatement batch) {
+    return apply(batch, indexWriteConsistency != null ? indexWriteConsistency : defaultConsistency);
+  }
+
+  public static <T extends Statement> T forJobAcquisition(T statement) {
+    return apply(statement, jobAcquisitionConsistency);
+  }
+
+  public static <T extends Statement> T forQuery(T statement) {
+    return apply(statement, queryConsistency);
+  }
+
+  protected static <T extends Statement> T apply(T statement, ConsistencyLevel level) {
+    if(statement != null && level != null) {
+      statement.setConsistencyLevel(level);
+    }
+    return statement;
+  }
+}
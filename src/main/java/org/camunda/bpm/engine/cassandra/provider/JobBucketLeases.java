@@ -0,0 +1,156 @@
+package org.camunda.bpm.engine.cassandra.provider;
+
+import static org.camunda.bpm.engine.cassandra.provider.table.JobBucketLeaseTableHandler.LEASE_TABLE_NAME;
+import static org.camunda.bpm.engine.cassandra.provider.table.JobBucketLeaseTableHandler.NODE_TABLE_NAME;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+
+/**
+ * Assigns the job index buckets to the live job executor nodes, so that each node acquires jobs from its own buckets.
+ *
+ * Every node registers itself with a TTL and keeps a lease on a fair share of the buckets, claimed and renewed with LWT.
+ * The share is buckets / nodes, the first buckets % nodes nodes in node id order take one more.
+ * A node that holds more than its share (e.g. after another node joined) releases the excess, the buckets of a node
+ * that stopped renewing become free when the leases expire and are claimed by the remaining nodes.
+ */
+public class JobBucketLeases {
+
+  private final static Logger LOG = Logger.getLogger(JobBucketLeases.class.getName());
+
+  protected final static String REGISTER_NODE = "INSERT INTO "+NODE_TABLE_NAME+" (node_id) VALUES (?) USING TTL ?;";
+  protected final static String SELECT_NODES = "SELECT node_id FROM "+NODE_TABLE_NAME+";";
+  protected final static String DELETE_NODE = "DELETE FROM "+NODE_TABLE_NAME+" WHERE node_id = ?;";
+
+  protected final static String SELECT_LEASES = "SELECT bucket, owner FROM "+LEASE_TABLE_NAME+";";
+  protected final static String CLAIM = "INSERT INTO "+LEASE_TABLE_NAME+" (bucket, owner) VALUES (?, ?) IF NOT EXISTS USING TTL ?;";
+  protected final static String RENEW = "UPDATE "+LEASE_TABLE_NAME+" USING TTL ? SET owner = ? WHERE bucket = ? IF owner = ?;";
+  protected final static String RELEASE = "DELETE FROM "+LEASE_TABLE_NAME+" WHERE bucket = ? IF owner = ?;";
+
+  protected final Session session;
+  protected final String nodeId;
+  protected final int buckets;
+  protected final int leaseSeconds;
+
+  protected PreparedStatement registerNodeStatement;
+  protected PreparedStatement selectNodesStatement;
+  protected PreparedStatement deleteNodeStatement;
+  protected PreparedStatement selectLeasesStatement;
+  protected PreparedStatement claimStatement;
+  protected PreparedStatement renewStatement;
+  protected PreparedStatement releaseStatement;
+
+  protected volatile int[] ownedBuckets = new int[0];
+  protected long nextRefresh = 0;
+
+  public JobBucketLeases(CassandraProcessEngineConfiguration config, String nodeId) {
+    this.session = config.getSession();
+    this.nodeId = nodeId;
+    this.buckets = config.getJobIndexBuckets();
+    this.leaseSeconds = config.getJobBucketLeaseSeconds();
+
+    registerNodeStatement = PreparedStatementRegistry.prepare(config, REGISTER_NODE);
+    selectNodesStatement = PreparedStatementRegistry.prepare(config, SELECT_NODES);
+    deleteNodeStatement = PreparedStatementRegistry.prepare(config, DELETE_NODE);
+    selectLeasesStatement = PreparedStatementRegistry.prepare(config, SELECT_LEASES);
+    claimStatement = PreparedStatementRegistry.prepare(config, CLAIM);
+    renewStatement = PreparedStatementRegistry.prepare(config, RENEW);
+    releaseStatement = PreparedStatementRegistry.prepare(config, RELEASE);
+  }
+
+  /**
+   * @return the buckets this node currently acquires jobs from, the leases are refreshed first if they are due
+   */
+  public int[] getOwnedBuckets() {
+    refreshIfDue();
+    return ownedBuckets;
+  }
+
+  protected synchronized void refreshIfDue() {
+    long now = System.currentTimeMillis();
+    if(now < nextRefresh) {
+      return;
+    }
+    //renew well before the leases expire
+    nextRefresh = now + leaseSeconds * 1000L / 3;
+    try {
+      refresh();
+    }
+    catch(RuntimeException e) {
+      LOG.warning("Could not refresh the job bucket leases of node "+nodeId+": "+e.getMessage());
+    }
+  }
+
+  protected void refresh() {
+    session.execute(registerNodeStatement.bind(nodeId, leaseSeconds));
+    List<String> nodeIds = new ArrayList<String>();
+    for(Row row : session.execute(selectNodesStatement.bind())) {
+      nodeIds.add(row.getString("node_id"));
+    }
+    if(!nodeIds.contains(nodeId)) {
+      nodeIds.add(nodeId);
+    }
+    Collections.sort(nodeIds);
+    int nodes = nodeIds.size();
+    //the first buckets % nodes nodes in id order take one bucket more, so every node gets one while buckets >= nodes
+    int share = buckets / nodes + (nodeIds.indexOf(nodeId) < buckets % nodes ? 1 : 0);
+
+    Map<Integer, String> owners = new HashMap<Integer, String>();
+    for(Row row : session.execute(selectLeasesStatement.bind())) {
+      owners.put(row.getInt("bucket"), row.getString("owner"));
+    }
+
+    List<Integer> owned = new ArrayList<Integer>();
+    for(int bucket = 0; bucket < buckets; bucket++) {
+      if(nodeId.equals(owners.get(bucket))) {
+        if(owned.size() < share && session.execute(renewStatement.bind(leaseSeconds, nodeId, bucket, nodeId)).wasApplied()) {
+          owned.add(bucket);
+        }
+        else {
+          session.execute(releaseStatement.bind(bucket, nodeId));
+        }
+      }
+    }
+
+    for(int bucket = 0; bucket < buckets && owned.size() < share; bucket++) {
+      if(!owners.containsKey(bucket) && session.execute(claimStatement.bind(bucket, nodeId, leaseSeconds)).wasApplied()) {
+        owned.add(bucket);
+      }
+    }
+
+    int[] result = new int[owned.size()];
+    for(int i = 0; i < result.length; i++) {
+      result[i] = owned.get(i);
+    }
+    if(result.length != ownedBuckets.length) {
+      LOG.fine("Node "+nodeId+" now owns "+result.length+" of "+buckets+" job buckets, "+nodes+" nodes");
+    }
+    ownedBuckets = result;
+  }
+
+  /**
+   * Gives the buckets back on shutdown, so that the other nodes do not have to wait for the leases to expire.
+   */
+  public synchronized void release() {
+    try {
+      for(int bucket : ownedBuckets) {
+        session.execute(releaseStatement.bind(bucket, nodeId));
+      }
+      session.execute(deleteNodeStatement.bind(nodeId));
+    }
+    catch(RuntimeException e) {
+      LOG.warning("Could not release the job bucket leases of node "+nodeId+": "+e.getMessage());
+    }
+    ownedBuckets = new int[0];
+  }
+}
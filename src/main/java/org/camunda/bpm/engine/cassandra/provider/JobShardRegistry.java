@@ -0,0 +1,128 @@
+package org.camunda.bpm.engine.cassandra.provider;
+
+import static org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler.JOB_SHARD_TABLE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+import org.camunda.bpm.engine.cassandra.provider.indexes.IndexUtils;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Records the job index shards that may hold jobs, so that the job executor can find old overdue shards
+ * with a single read instead of probing the index on start-up.
+ *
+ * A shard is registered with the jobs written to it and removed by the job executor once it has drained.
+ * Each node reloads the registry periodically and stops registering the current and future shards it has seen
+ * in the registry. Shards in the past are registered with every write, another node may be about to remove them.
+ */
+public class JobShardRegistry {
+
+  private final static Logger LOG = Logger.getLogger(JobShardRegistry.class.getName());
+
+  protected final static String INSERT = "INSERT INTO "+JOB_SHARD_TABLE+" (is_locked, shard_id) VALUES (?, ?);";
+  protected final static String SELECT = "SELECT is_locked, shard_id FROM "+JOB_SHARD_TABLE+";";
+  protected final static String DELETE = "DELETE FROM "+JOB_SHARD_TABLE+" WHERE is_locked = ? AND shard_id = ?;";
+
+  private static PreparedStatement insertStatement=null;
+  private static PreparedStatement selectStatement=null;
+  private static PreparedStatement deleteStatement=null;
+
+  protected static int shardSizeMillis;
+  protected static int refreshMillis;
+  protected static long nextRefresh = 0;
+
+  //shards found in the registry by the last refresh
+  protected static volatile Set<Long> shards = new TreeSet<Long>();
+  protected static volatile Set<Long> lockedShards = new TreeSet<Long>();
+
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    insertStatement = PreparedStatementRegistry.prepare(config, INSERT);
+    selectStatement = PreparedStatementRegistry.prepare(config, SELECT);
+    deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
+    shardSizeMillis = config.getJobShardSizeHours()*3600*1000;
+    refreshMillis = config.getJobShardRefreshSeconds()*1000;
+    synchronized(JobShardRegistry.class) {
+      shards = new TreeSet<Long>();
+      lockedShards = new TreeSet<Long>();
+      nextRefresh = 0;
+    }
+  }
+
+  /**
+   * @return the statement registering the shard, or null if it is registered already
+   */
+  public static Statement getRegisterStatement(Session session, long shard, boolean locked) {
+    refreshIfDue(session);
+    long prevShard = IndexUtils.calculateShard(System.currentTimeMillis(), shardSizeMillis) - shardSizeMillis;
+    if(shard >= prevShard && getShards(locked).contains(shard)) {
+      return null;
+    }
+    return insertStatement.bind(locked, new Date(shard));
+  }
+
+  public static void register(Session session, long shard, boolean locked) {
+    session.execute(insertStatement.bind(locked, new Date(shard)));
+  }
+
+  public static void remove(Session session, long shard, boolean locked) {
+    session.execute(deleteStatement.bind(locked, new Date(shard)));
+  }
+
+  /**
+   * Reloads the registry if the refresh interval has passed.
+   *
+   * @return true if the registry was reloaded
+   */
+  public static synchronized boolean refreshIfDue(Session session) {
+    long now = System.currentTimeMillis();
+    if(now < nextRefresh) {
+      return false;
+    }
+    nextRefresh = now + refreshMillis;
+    try {
+      load(session);
+      return true;
+    }
+    catch(RuntimeException e) {
+      LOG.warning("Could not load the job shard registry: "+e.getMessage());
+      return false;
+    }
+  }
+
+  protected static void load(Session session) {
+    Set<Long> loadedShards = new TreeSet<Long>();
+    Set<Long> loadedLockedShards = new TreeSet<Long>();
+    for(Row row : session.execute(ConsistencyPolicy.forJobAcquisition(selectStatement.bind()))) {
+      if(row.getBool("is_locked")) {
+        loadedLockedShards.add(row.getDate("shard_id").getTime());
+      }
+      else {
+        loadedShards.add(row.getDate("shard_id").getTime());
+      }
+    }
+    shards = loadedShards;
+    lockedShards = loadedLockedShards;
+  }
+
+  /**
+   * @return the shards found in the registry by the last refresh, sorted by shard id
+   */
+  public static List<Long> getShardList(boolean locked) {
+    return Collections.unmodifiableList(new ArrayList<Long>(getShards(locked)));
+  }
+
+  protected static Set<Long> getShards(boolean locked) {
+    return locked ? lockedShards : shards;
+  }
+}
@@ -15,6 +15,7 @@ public abstract class LockedBatch<T extends DbEntity> {
   
 
   protected boolean shouldNotLock = false;
+  protected boolean shouldLock = false; //lock even if no statement was added, e.g. all updates were skipped as unchanged
   
   public LockedBatch(T entity) {
     this.entity = entity;
@@ -24,11 +25,11 @@ public abstract class LockedBatch<T extends DbEntity> {
     if(!shouldNotLock && !isEmpty()) {
       addLockStatement(batch);
     }
-    return batch;
+    return ConsistencyPolicy.forProcessInstanceWrite(batch);
   }
   
   public boolean isEmpty() {
-    return batch.getStatements().isEmpty();
+    return batch.getStatements().isEmpty() && !shouldLock;
   }
   
   protected abstract void addLockStatement(BatchStatement batch);
@@ -48,8 +49,12 @@ public abstract class LockedBatch<T extends DbEntity> {
     this.shouldNotLock = true;
   }
 
+  public void setShouldLock() {
+    this.shouldLock = true;
+  }
+
   public BatchStatement getIndexBatch() {
-    return indexBatch;
+    return ConsistencyPolicy.forIndexWrite(indexBatch);
   }
 
   public String getVersion() {
@@ -0,0 +1,48 @@
+package org.camunda.bpm.engine.cassandra.provider;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+
+/**
+ * Holds all statements prepared by the operation, query and index handlers.
+ *
+ * The registry is filled in {@link CassandraPersistenceSession#staticInit(CassandraProcessEngineConfiguration)},
+ * handlers keep the returned statements in static fields and only bind them at runtime.
+ * Every query string is prepared once, even if several handlers ask for it.
+ */
+public class PreparedStatementRegistry {
+
+  private static Map<String, PreparedStatement> statements = new ConcurrentHashMap<String, PreparedStatement>();
+
+  public static PreparedStatement prepare(CassandraProcessEngineConfiguration config, String query) {
+    PreparedStatement statement = statements.get(query);
+    if(statement == null) {
+      statement = ConsistencyPolicy.applyDefault(config.getSession().prepare(query));
+      statements.put(query, statement);
+    }
+    return statement;
+  }
+
+  public static PreparedStatement prepare(CassandraProcessEngineConfiguration config, RegularStatement query) {
+    return prepare(config, query.getQueryString());
+  }
+
+  public static Collection<PreparedStatement> getStatements() {
+    return Collections.unmodifiableCollection(statements.values());
+  }
+
+  /**
+   * Prepared statements belong to a cluster, so they have to be dropped when the engine is (re)initialized.
+   */
+  public static void clear() {
+    statements.clear();
+  }
+
+}
@@ -1,27 +1,28 @@
 package org.camunda.bpm.engine.cassandra.provider;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.update;
-
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessInstanceTableHandler;
 import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
 
 import com.datastax.driver.core.BatchStatement;
-import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.PreparedStatement;
 
 public class ProcessInstanceBatch extends LockedBatch<ExecutionEntity> {
-  
+
+  protected final static String LOCK = "UPDATE "+ProcessInstanceTableHandler.TABLE_NAME+" SET version = ? WHERE id = ? IF version = ?;";
+
+  private static PreparedStatement lockStatement=null;
+
   public ProcessInstanceBatch(ExecutionEntity entity) {
     super(entity);
   }
 
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    lockStatement = PreparedStatementRegistry.prepare(config, LOCK);
+  }
+
   protected void addLockStatement(BatchStatement batch) {
-    Statement st=update(ProcessInstanceTableHandler.TABLE_NAME)
-        .with(set("version", entity.getRevisionNext()))
-        .where(eq("id", entity.getId()))
-        .onlyIf(eq("version", entity.getRevision()));
-    batch.add(st);
+    batch.add(lockStatement.bind(entity.getRevisionNext(), entity.getId(), entity.getRevision()));
     setVersion( Integer.toString(entity.getRevision()));
   }
   
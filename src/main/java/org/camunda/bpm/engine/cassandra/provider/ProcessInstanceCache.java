@@ -0,0 +1,154 @@
+package org.camunda.bpm.engine.cassandra.provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.datastax.driver.core.UDTValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Engine wide cache of serialized process instance rows, keyed by process instance id.
+ *
+ * Entries hold the row as it was read (or written) at a given version. Every cache hit is validated by reading
+ * the current version of the row, an entry of an older version, or of a process instance deleted by another node,
+ * is evicted and the row is read again. This keeps read-only commands and commands that do not lock the process instance
+ * from working on stale rows. The version read is a single cell, the cache saves reading and transferring the embedded entities.
+ */
+public class ProcessInstanceCache {
+
+  private final static Logger LOG = Logger.getLogger(ProcessInstanceCache.class.getName());
+
+  protected Cache<String, CachedProcessInstance> cache;
+
+  public ProcessInstanceCache(long maxSize, long expirySeconds) {
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(expirySeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  public CachedProcessInstance get(String processInstanceId) {
+    return cache.getIfPresent(processInstanceId);
+  }
+
+  public void put(String processInstanceId, CachedProcessInstance processInstance) {
+    //do not overwrite an entry that was updated by a concurrent commit since the row was read
+    cache.asMap().putIfAbsent(processInstanceId, processInstance);
+  }
+
+  public void invalidate(String processInstanceId) {
+    cache.invalidate(processInstanceId);
+  }
+
+  /**
+   * Applies the changes of a successful commit to the cached entry.
+   *
+   * @param lockedVersion the version the commit locked the process instance at, or null if it was written without locking
+   */
+  public void update(String processInstanceId, Changes changes, Integer lockedVersion) {
+    CachedProcessInstance cached = cache.getIfPresent(processInstanceId);
+    if(cached == null) {
+      return;
+    }
+    if(changes.isDeleted() || (lockedVersion != null && lockedVersion != cached.getVersion())) {
+      cache.invalidate(processInstanceId);
+      return;
+    }
+
+    int version = lockedVersion != null ? cached.getVersion() + 1 : cached.getVersion();
+    CachedProcessInstance updated = cached.apply(version, changes);
+    if(!cache.asMap().replace(processInstanceId, cached, updated)) {
+      LOG.fine("Concurrent update of the cached process instance "+processInstanceId+", evicting.");
+      cache.invalidate(processInstanceId);
+    }
+  }
+
+  /**
+   * Serialized process instance row.
+   */
+  public static class CachedProcessInstance {
+
+    protected final int version;
+    protected final String businessKey;
+    //embedded entities by column name, then by entity id
+    protected final Map<String, Map<String, UDTValue>> embedded;
+
+    public CachedProcessInstance(int version, String businessKey, Map<String, Map<String, UDTValue>> embedded) {
+      this.version = version;
+      this.businessKey = businessKey;
+      this.embedded = embedded;
+    }
+
+    public int getVersion() {
+      return version;
+    }
+
+    public String getBusinessKey() {
+      return businessKey;
+    }
+
+    public Map<String, UDTValue> getEmbedded(String column) {
+      Map<String, UDTValue> values = embedded.get(column);
+      if(values == null) {
+        return Collections.emptyMap();
+      }
+      return values;
+    }
+
+    protected CachedProcessInstance apply(int newVersion, Changes changes) {
+      Map<String, Map<String, UDTValue>> newEmbedded = new HashMap<String, Map<String, UDTValue>>(embedded);
+      for (Map.Entry<String, Map<String, UDTValue>> columnChanges : changes.getColumns().entrySet()) {
+        Map<String, UDTValue> values = new HashMap<String, UDTValue>(getEmbedded(columnChanges.getKey()));
+        for (Map.Entry<String, UDTValue> change : columnChanges.getValue().entrySet()) {
+          if(change.getValue() == null) {
+            values.remove(change.getKey());
+          }
+          else {
+            values.put(change.getKey(), change.getValue());
+          }
+        }
+        newEmbedded.put(columnChanges.getKey(), values);
+      }
+      return new CachedProcessInstance(newVersion, businessKey, newEmbedded);
+    }
+  }
+
+  /**
+   * Changes made to a process instance row in a single transaction.
+   */
+  public static class Changes {
+
+    //column name -> entity id -> new value, null value means the entry was removed
+    protected Map<String, Map<String, UDTValue>> columns = new HashMap<String, Map<String, UDTValue>>();
+    protected boolean deleted = false;
+
+    public void put(String column, String id, UDTValue value) {
+      Map<String, UDTValue> values = columns.get(column);
+      if(values == null) {
+        values = new HashMap<String, UDTValue>();
+        columns.put(column, values);
+      }
+      values.put(id, value);
+    }
+
+    public void remove(String column, String id) {
+      put(column, id, null);
+    }
+
+    public Map<String, Map<String, UDTValue>> getColumns() {
+      return columns;
+    }
+
+    public boolean isDeleted() {
+      return deleted;
+    }
+
+    public void setDeleted() {
+      this.deleted = true;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import java.util.logging.Logger;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.table.IndexTableHandler;
 import org.camunda.bpm.engine.impl.db.DbEntity;
 
@@ -59,7 +60,7 @@ public abstract class AbstractIndexHandler <T extends DbEntity> implements Index
     }
     
     Session s = cassandraPersistenceSession.getSession();
-    List<Row> rows = s.execute(selectStatement.bind(getIndexName(),getIndexValue(indexValues))).all();
+    List<Row> rows = s.execute(selectStatement.bind(getIndexName(),getIndexValue(indexValues)).setIdempotent(true)).all();
         
     if(rows == null || rows.size()==0) {
       return null;
@@ -73,7 +74,7 @@ public abstract class AbstractIndexHandler <T extends DbEntity> implements Index
   @Override
   public List<String> getValues(Map<String, Object> params, CassandraPersistenceSession cassandraPersistenceSession, String ... indexValues) {
     Session s = cassandraPersistenceSession.getSession();
-    List<Row> rows = s.execute(selectStatement.bind(getIndexName(), getIndexValue(indexValues))).all();
+    List<Row> rows = s.execute(selectStatement.bind(getIndexName(), getIndexValue(indexValues)).setIdempotent(true)).all();
     List<String> result = new ArrayList<String>();
     for(Row row:rows){
       result.add(row.getString("val"));
@@ -125,7 +126,16 @@ public abstract class AbstractIndexHandler <T extends DbEntity> implements Index
   }
  
   public boolean checkIndexMatch(T entity, T newEntity){
-    return getIndexValue(entity).equals(getIndexValue(newEntity));
+    String indexValue = getIndexValue(entity);
+    String newIndexValue = getIndexValue(newEntity);
+    if(indexValue == null) {
+      return newIndexValue == null;
+    }
+    return indexValue.equals(newIndexValue) && equal(getValue(entity), getValue(newEntity));
+  }
+
+  private static boolean equal(String value, String newValue) {
+    return value == null ? newValue == null : value.equals(newValue);
   }
  
   protected String getIndexValue(String... indexValues) {
@@ -136,23 +146,23 @@ public abstract class AbstractIndexHandler <T extends DbEntity> implements Index
   }
 
   public static void prepare(CassandraProcessEngineConfiguration config) {
-    selectStatement = config.getSession().prepare(select("val")
+    selectStatement = PreparedStatementRegistry.prepare(config, select("val")
         .from(IndexTableHandler.INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("idx_value", QueryBuilder.bindMarker())));
     
-    insertStatement = config.getSession().prepare(insertInto(IndexTableHandler.INDEX_TABLE_NAME)
+    insertStatement = PreparedStatementRegistry.prepare(config, insertInto(IndexTableHandler.INDEX_TABLE_NAME)
         .value("idx_name", QueryBuilder.bindMarker())
         .value("idx_value",QueryBuilder.bindMarker())
         .value("val",QueryBuilder.bindMarker()));
     
-    deleteStatement = config.getSession().prepare(delete().all()
+    deleteStatement = PreparedStatementRegistry.prepare(config, delete().all()
         .from(IndexTableHandler.INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("idx_value",QueryBuilder.bindMarker()))
         .and(eq("val",QueryBuilder.bindMarker())));
     
-    deleteUniqueStatement = config.getSession().prepare(delete().all()
+    deleteUniqueStatement = PreparedStatementRegistry.prepare(config, delete().all()
         .from(IndexTableHandler.INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("idx_value",QueryBuilder.bindMarker())));
@@ -30,6 +30,7 @@ import java.util.logging.Logger;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.impl.db.DbEntity;
 
 import com.datastax.driver.core.PreparedStatement;
@@ -60,45 +61,45 @@ public abstract class AbstractOrderedIndexHandler<T extends DbEntity> implements
   private static PreparedStatement selectBetweenStatement=null;
     
   public static void prepare(CassandraProcessEngineConfiguration config) {
-    selectLessThanStatement = config.getSession().prepare(select("val")
+    selectLessThanStatement = PreparedStatementRegistry.prepare(config, select("val")
         .from(INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("part_id", QueryBuilder.bindMarker()))
         .and(lt("order_by", QueryBuilder.bindMarker())));
     
-    selectGreaterThanStatement = config.getSession().prepare(select("val")
+    selectGreaterThanStatement = PreparedStatementRegistry.prepare(config, select("val")
         .from(INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("part_id", QueryBuilder.bindMarker()))
         .and(gt("order_by", QueryBuilder.bindMarker())));
     
-    selectBetweenStatement = config.getSession().prepare(select("val")
+    selectBetweenStatement = PreparedStatementRegistry.prepare(config, select("val")
         .from(INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("part_id", QueryBuilder.bindMarker()))
         .and(gt("order_by", QueryBuilder.bindMarker()))
         .and(lt("order_by", QueryBuilder.bindMarker())));
 
-    selectStatement = config.getSession().prepare(select("val")
+    selectStatement = PreparedStatementRegistry.prepare(config, select("val")
         .from(INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("part_id", QueryBuilder.bindMarker()))
         .and(eq("order_by", QueryBuilder.bindMarker())));
     
-    insertStatement = config.getSession().prepare(insertInto(INDEX_TABLE_NAME)
+    insertStatement = PreparedStatementRegistry.prepare(config, insertInto(INDEX_TABLE_NAME)
         .value("idx_name", QueryBuilder.bindMarker())
         .value("part_id", QueryBuilder.bindMarker())
         .value("order_by", QueryBuilder.bindMarker())
         .value("val",QueryBuilder.bindMarker()));
     
-    deleteStatement = config.getSession().prepare(delete().all()
+    deleteStatement = PreparedStatementRegistry.prepare(config, delete().all()
         .from(INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("part_id", QueryBuilder.bindMarker()))
         .and(eq("order_by", QueryBuilder.bindMarker()))
         .and(eq("val",QueryBuilder.bindMarker())));
     
-    deleteUniqueStatement = config.getSession().prepare(delete().all()
+    deleteUniqueStatement = PreparedStatementRegistry.prepare(config, delete().all()
         .from(INDEX_TABLE_NAME)
         .where(eq("idx_name", QueryBuilder.bindMarker()))
         .and(eq("part_id", QueryBuilder.bindMarker()))
@@ -163,7 +164,7 @@ public abstract class AbstractOrderedIndexHandler<T extends DbEntity> implements
     Session s = cassandraPersistenceSession.getSession();
     String partId=(String) params.get("part_id");
     Date orderBy=(Date) params.get("order_by");
-    List<Row> rows = s.execute(selectStatement.bind(getIndexName(), partId, orderBy)).all();
+    List<Row> rows = s.execute(selectStatement.bind(getIndexName(), partId, orderBy).setIdempotent(true)).all();
         
     if(rows == null || rows.size()==0) {
       return null;
@@ -190,17 +191,17 @@ public abstract class AbstractOrderedIndexHandler<T extends DbEntity> implements
     List<Row> rows = null;
     if(orderBy!=null){
       //select exact
-      rows = s.execute(selectStatement.bind(getIndexName(), partId, orderBy)).all();
+      rows = s.execute(selectStatement.bind(getIndexName(), partId, orderBy).setIdempotent(true)).all();
     }
     else if(start!=null && end!=null){
       //bounded range
-      rows = s.execute(selectBetweenStatement.bind(getIndexName(), partId, start, end)).all();      
+      rows = s.execute(selectBetweenStatement.bind(getIndexName(), partId, start, end).setIdempotent(true)).all();      
     }
     else if(start!=null){
-      rows = s.execute(selectGreaterThanStatement.bind(getIndexName(), partId, start)).all();            
+      rows = s.execute(selectGreaterThanStatement.bind(getIndexName(), partId, start).setIdempotent(true)).all();            
     }
     else if(end!=null){
-      rows = s.execute(selectLessThanStatement.bind(getIndexName(), partId, end)).all();            
+      rows = s.execute(selectLessThanStatement.bind(getIndexName(), partId, end).setIdempotent(true)).all();            
     }
     
     List<String> result = new ArrayList<String>();
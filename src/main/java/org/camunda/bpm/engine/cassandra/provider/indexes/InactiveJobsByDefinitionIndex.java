@@ -0,0 +1,73 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.camunda.bpm.engine.cassandra.provider.indexes;
+
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.SuspensionState;
+
+/**
+ * Jobs that the job executor cannot acquire, i.e. failed jobs without retries and suspended jobs.
+ * These are kept out of the job acquisition index and partitioned by state and job definition here instead,
+ * job queries for them are answered by SelectJobsByQueryCriteria.
+ */
+public class InactiveJobsByDefinitionIndex extends AbstractIndexHandler<JobEntity> {
+
+  public static final String FAILED = "failed";
+  public static final String SUSPENDED = "suspended";
+
+  @Override
+  protected String getIndexName() {
+     return IndexNames.INACTIVE_JOBS_BY_DEFINITION;
+  }
+
+  @Override
+  public boolean isUnique() {
+    return false;
+  }
+
+  @Override
+  protected String getIndexValue(String... indexValues) {
+    if(indexValues.length!=2){
+      throw new IllegalArgumentException("InactiveJobsByDefinitionIndex requires the job state and the job definition id");
+    }
+    
+    return IndexUtils.createIndexValue(indexValues);
+  }
+
+  @Override
+  protected String getIndexValue(JobEntity entity) {
+    String state = getInactiveState(entity);
+    if(state == null || entity.getJobDefinitionId() == null){
+      return null;
+    }
+    return IndexUtils.createIndexValue(state, entity.getJobDefinitionId());
+  }
+
+  @Override
+  protected String getValue(JobEntity entity) {
+    return entity.getId();
+  }
+
+  /**
+   * @return the state the job is indexed under, null if the job can be acquired
+   */
+  public static String getInactiveState(JobEntity entity) {
+    if(entity.getSuspensionState() != SuspensionState.ACTIVE.getStateCode()){
+      return SUSPENDED;
+    }
+    if(entity.getRetries() <= 0){
+      return FAILED;
+    }
+    return null;
+  }
+}
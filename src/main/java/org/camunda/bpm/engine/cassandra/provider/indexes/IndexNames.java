@@ -44,6 +44,7 @@ class IndexNames {
   static final String EXCLUSIVE_JOBS_BY_DUE_DATE = "job_due";
   static final String EXCLUSIVE_JOBS_BY_LOCK_TIME = "job_lck";
   static final String JOBS_BY_EXECUTION_ID = "job_ex";
+  static final String INACTIVE_JOBS_BY_DEFINITION = "job_inact";
   
   //job definition indexes
   static final String JOB_DEF_ID_BY_PROC_DEF_ID = "jd_pr";
@@ -0,0 +1,195 @@
+package org.camunda.bpm.engine.cassandra.provider.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+import org.camunda.bpm.engine.cassandra.provider.metrics.CommitStatistics.BatchType;
+
+/**
+ * Aggregates the {@link CommitStatistics} of all commits, published as the MBean
+ * <code>org.camunda.bpm.engine.cassandra:type=commitStatistics</code>.
+ * Commits that take longer or write more bytes than the configured thresholds are logged with their statistics.
+ */
+public class CommitMetrics implements CommitMetricsMBean {
+
+  private final static Logger LOG = Logger.getLogger(CommitMetrics.class.getName());
+
+  public static final String OBJECT_NAME = HandlerMetrics.DOMAIN + ":type=commitStatistics";
+
+  protected static volatile CommitMetrics instance = null;
+  protected static Long logThresholdNanos;
+  protected static Long logThresholdBytes;
+
+  protected final AtomicLong commits = new AtomicLong();
+  protected final AtomicLong failedCommits = new AtomicLong();
+  protected final AtomicLong lockedStatements = new AtomicLong();
+  protected final AtomicLong indexStatements = new AtomicLong();
+  protected final AtomicLong varietyStatements = new AtomicLong();
+  protected final AtomicLong batches = new AtomicLong();
+  protected final AtomicLong bytes = new AtomicLong();
+  protected final AtomicLong maxBatchBytes = new AtomicLong();
+  protected final AtomicLong lwtApplied = new AtomicLong();
+  protected final AtomicLong lwtRejected = new AtomicLong();
+  protected final AtomicLong durationNanos = new AtomicLong();
+  protected final AtomicLong maxDurationNanos = new AtomicLong();
+
+  public static synchronized void prepare(CassandraProcessEngineConfiguration config) {
+    close();
+    if(!config.isCommitStatistics()) {
+      return;
+    }
+    logThresholdNanos = config.getCommitLogThresholdMillis() != null ? config.getCommitLogThresholdMillis() * 1000000L : null;
+    logThresholdBytes = config.getCommitLogThresholdBytes() != null ? config.getCommitLogThresholdBytes().longValue() : null;
+    CommitMetrics metrics = new CommitMetrics();
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(OBJECT_NAME);
+      if(server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(metrics, objectName);
+    }
+    catch (JMException e) {
+      LOG.warning("Could not register the commit statistics: "+e.getMessage());
+    }
+    instance = metrics;
+  }
+
+  public static synchronized void close() {
+    if(instance == null) {
+      return;
+    }
+    instance = null;
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(OBJECT_NAME);
+      if(server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    }
+    catch (JMException e) {
+      LOG.warning("Could not unregister the commit statistics: "+e.getMessage());
+    }
+  }
+
+  /**
+   * @return the engine wide statistics, null if they are disabled
+   */
+  public static CommitMetrics getInstance() {
+    return instance;
+  }
+
+  public static boolean isEnabled() {
+    return instance != null;
+  }
+
+  public static void record(CommitStatistics statistics, boolean failed) {
+    CommitMetrics metrics = instance;
+    if(metrics == null || statistics == null) {
+      return;
+    }
+    statistics.finish();
+    metrics.add(statistics, failed);
+
+    if((logThresholdNanos != null && statistics.getDurationNanos() > logThresholdNanos)
+        || (logThresholdBytes != null && statistics.getBytes() > logThresholdBytes)) {
+      LOG.warning((failed ? "Failed commit" : "Commit")+" above the log threshold: "+statistics);
+    }
+  }
+
+  protected void add(CommitStatistics statistics, boolean failed) {
+    commits.incrementAndGet();
+    if(failed) {
+      failedCommits.incrementAndGet();
+    }
+    lockedStatements.addAndGet(statistics.getStatements(BatchType.LOCKED));
+    indexStatements.addAndGet(statistics.getStatements(BatchType.INDEX));
+    varietyStatements.addAndGet(statistics.getStatements(BatchType.VARIETY));
+    for (BatchType type : BatchType.values()) {
+      batches.addAndGet(statistics.getBatches(type));
+    }
+    bytes.addAndGet(statistics.getBytes());
+    updateMax(maxBatchBytes, statistics.getMaxBatchBytes());
+    lwtApplied.addAndGet(statistics.getLwtApplied());
+    lwtRejected.addAndGet(statistics.getLwtRejected());
+    durationNanos.addAndGet(statistics.getDurationNanos());
+    updateMax(maxDurationNanos, statistics.getDurationNanos());
+  }
+
+  protected static void updateMax(AtomicLong max, long value) {
+    long current = max.get();
+    while(value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  public long getCommits() {
+    return commits.get();
+  }
+
+  public long getFailedCommits() {
+    return failedCommits.get();
+  }
+
+  public long getLockedStatements() {
+    return lockedStatements.get();
+  }
+
+  public long getIndexStatements() {
+    return indexStatements.get();
+  }
+
+  public long getVarietyStatements() {
+    return varietyStatements.get();
+  }
+
+  public long getBatches() {
+    return batches.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public long getMaxBatchBytes() {
+    return maxBatchBytes.get();
+  }
+
+  public long getLwtApplied() {
+    return lwtApplied.get();
+  }
+
+  public long getLwtRejected() {
+    return lwtRejected.get();
+  }
+
+  public double getMeanDuration() {
+    long count = commits.get();
+    return count == 0 ? 0 : durationNanos.get() / 1000.0 / count;
+  }
+
+  public long getMaxDuration() {
+    return maxDurationNanos.get() / 1000;
+  }
+
+  public void reset() {
+    commits.set(0);
+    failedCommits.set(0);
+    lockedStatements.set(0);
+    indexStatements.set(0);
+    varietyStatements.set(0);
+    batches.set(0);
+    bytes.set(0);
+    maxBatchBytes.set(0);
+    lwtApplied.set(0);
+    lwtRejected.set(0);
+    durationNanos.set(0);
+    maxDurationNanos.set(0);
+  }
+}
@@ -0,0 +1,33 @@
+package org.camunda.bpm.engine.cassandra.provider.metrics;
+
+/**
+ * Engine wide totals of the commit statistics, durations are in microseconds.
+ */
+public interface CommitMetricsMBean {
+
+  long getCommits();
+
+  long getFailedCommits();
+
+  long getLockedStatements();
+
+  long getIndexStatements();
+
+  long getVarietyStatements();
+
+  long getBatches();
+
+  long getBytes();
+
+  long getMaxBatchBytes();
+
+  long getLwtApplied();
+
+  long getLwtRejected();
+
+  double getMeanDuration();
+
+  long getMaxDuration();
+
+  void reset();
+}
@@ -0,0 +1,168 @@
+package org.camunda.bpm.engine.cassandra.provider.metrics;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Counters of a single commit of the persistence session. The batch size is the serialized size of the bound values
+ * plus the length of the query strings of unprepared statements, which is close to what the coordinator sees as the batch size.
+ */
+public class CommitStatistics {
+
+  public enum BatchType {
+    LOCKED, INDEX, VARIETY,
+    UNBATCHED //statements sent on their own before the batches, counted as statements only
+  }
+
+  protected final ProtocolVersion protocolVersion;
+  protected final long start = System.nanoTime();
+  protected long durationNanos;
+
+  protected final int[] batches = new int[BatchType.values().length];
+  protected final int[] statements = new int[BatchType.values().length];
+  protected final long[] bytes = new long[BatchType.values().length];
+  protected long maxBatchBytes;
+  protected int lwtApplied;
+  protected int lwtRejected;
+
+  public CommitStatistics(ProtocolVersion protocolVersion) {
+    this.protocolVersion = protocolVersion;
+  }
+
+  public void addBatch(BatchType type, BatchStatement batch) {
+    if(batch == null) {
+      return;
+    }
+    long batchBytes = getSize(batch);
+    batches[type.ordinal()]++;
+    statements[type.ordinal()] += batch.size();
+    bytes[type.ordinal()] += batchBytes;
+    maxBatchBytes = Math.max(maxBatchBytes, batchBytes);
+  }
+
+  public void addStatement(BatchType type, Statement statement) {
+    statements[type.ordinal()]++;
+    bytes[type.ordinal()] += getSize(statement);
+  }
+
+  /**
+   * Counts the outcome of a conditional batch, batches without a condition return no rows and are not counted.
+   */
+  public void addLwtResult(List<Row> rows) {
+    if(rows.isEmpty()) {
+      return;
+    }
+    for (Row row : rows) {
+      if(!row.getBool("[applied]")) {
+        lwtRejected++;
+        return;
+      }
+    }
+    lwtApplied++;
+  }
+
+  public void finish() {
+    durationNanos = System.nanoTime() - start;
+  }
+
+  protected long getSize(Statement statement) {
+    return getSize(statement, protocolVersion);
+  }
+
+  /**
+   * @return the serialized size of the bound values of the statement plus the length of the query strings of unprepared statements
+   */
+  public static long getSize(Statement statement, ProtocolVersion protocolVersion) {
+    long size = 0;
+    if(statement instanceof BatchStatement) {
+      for (Statement child : ((BatchStatement) statement).getStatements()) {
+        size += getSize(child, protocolVersion);
+      }
+    }
+    else if(statement instanceof BoundStatement) {
+      BoundStatement bound = (BoundStatement) statement;
+      for (int i = 0; i < bound.preparedStatement().getVariables().size(); i++) {
+        size += getSize(bound.getBytesUnsafe(i));
+      }
+    }
+    else if(statement instanceof RegularStatement) {
+      RegularStatement regular = (RegularStatement) statement;
+      size += regular.getQueryString().length();
+      if(protocolVersion != null && regular.hasValues()) {
+        for (ByteBuffer value : regular.getValues(protocolVersion)) {
+          size += getSize(value);
+        }
+      }
+    }
+    return size;
+  }
+
+  protected static long getSize(ByteBuffer value) {
+    return value == null ? 0 : value.remaining();
+  }
+
+  public int getBatches(BatchType type) {
+    return batches[type.ordinal()];
+  }
+
+  public int getStatements(BatchType type) {
+    return statements[type.ordinal()];
+  }
+
+  public long getBytes(BatchType type) {
+    return bytes[type.ordinal()];
+  }
+
+  public int getStatements() {
+    int total = 0;
+    for (int count : statements) {
+      total += count;
+    }
+    return total;
+  }
+
+  public long getBytes() {
+    long total = 0;
+    for (long count : bytes) {
+      total += count;
+    }
+    return total;
+  }
+
+  public long getMaxBatchBytes() {
+    return maxBatchBytes;
+  }
+
+  public int getLwtApplied() {
+    return lwtApplied;
+  }
+
+  public int getLwtRejected() {
+    return lwtRejected;
+  }
+
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("duration ").append(durationNanos / 1000000).append("ms");
+    for (BatchType type : BatchType.values()) {
+      builder.append(", ").append(type.name().toLowerCase())
+        .append(" ").append(getBatches(type)).append(" batches/")
+        .append(getStatements(type)).append(" statements/")
+        .append(getBytes(type)).append(" bytes");
+    }
+    builder.append(", largest batch ").append(maxBatchBytes).append(" bytes");
+    builder.append(", lwt applied ").append(lwtApplied).append(" rejected ").append(lwtRejected);
+    return builder.toString();
+  }
+}
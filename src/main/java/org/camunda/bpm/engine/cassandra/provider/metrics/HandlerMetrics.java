@@ -0,0 +1,126 @@
+package org.camunda.bpm.engine.cassandra.provider.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+
+/**
+ * Call counts and latencies of the persistence session handlers, by kind of call and the name the handler is registered under,
+ * e.g. kind "selectList" and name "selectNextJobsToExecute". Each handler is published as an MBean named
+ * <code>org.camunda.bpm.engine.cassandra:type=&lt;kind&gt;,name=&lt;name&gt;</code> when it is first called.
+ *
+ * Usage: <code>long start = HandlerMetrics.start(); ... HandlerMetrics.stop(kind, name, start, failed);</code>
+ */
+public class HandlerMetrics {
+
+  private final static Logger LOG = Logger.getLogger(HandlerMetrics.class.getName());
+
+  public static final String DOMAIN = "org.camunda.bpm.engine.cassandra";
+
+  public static final String SELECT_LIST = "selectList";
+  public static final String SELECT_ONE = "selectOne";
+  public static final String SELECT_BY_ID = "selectById";
+  public static final String SELECT_COMPOSITE = "selectComposite";
+  public static final String INSERT = "insert";
+  public static final String UPDATE = "update";
+  public static final String DELETE = "delete";
+  public static final String COMMIT = "commit";
+
+  //commit phases, one record per round trip
+  public static final String COMMIT_TOTAL = "total";
+  public static final String COMMIT_LOCK = "lock";
+  public static final String COMMIT_WRITE = "write";
+
+  protected static volatile boolean enabled = false;
+  protected static ConcurrentMap<String, LatencyStats> stats = new ConcurrentHashMap<String, LatencyStats>();
+
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    close();
+    enabled = config.isHandlerMetrics();
+  }
+
+  /**
+   * Unregisters the MBeans of all handlers.
+   */
+  public static synchronized void close() {
+    enabled = false;
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (LatencyStats handlerStats : stats.values()) {
+      try {
+        ObjectName objectName = getObjectName(handlerStats.getKind(), handlerStats.getName());
+        if(server.isRegistered(objectName)) {
+          server.unregisterMBean(objectName);
+        }
+      }
+      catch (JMException e) {
+        LOG.warning("Could not unregister the metrics of "+handlerStats.getKind()+" "+handlerStats.getName()+": "+e.getMessage());
+      }
+    }
+    stats.clear();
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the start time in nanoseconds, 0 if the metrics are disabled
+   */
+  public static long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  public static void stop(String kind, String name, long start, boolean failed) {
+    if(start == 0 || !enabled) {
+      return;
+    }
+    getStats(kind, name).record(System.nanoTime() - start, failed);
+  }
+
+  public static LatencyStats getStats(String kind, String name) {
+    String key = kind + ":" + name;
+    LatencyStats handlerStats = stats.get(key);
+    if(handlerStats == null) {
+      handlerStats = register(key, kind, name);
+    }
+    return handlerStats;
+  }
+
+  public static Collection<LatencyStats> getAllStats() {
+    return Collections.unmodifiableCollection(stats.values());
+  }
+
+  protected static synchronized LatencyStats register(String key, String kind, String name) {
+    LatencyStats handlerStats = stats.get(key);
+    if(handlerStats != null) {
+      return handlerStats;
+    }
+    handlerStats = new LatencyStats(kind, name);
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = getObjectName(kind, name);
+      if(server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(handlerStats, objectName);
+    }
+    catch (JMException e) {
+      LOG.warning("Could not register the metrics of "+kind+" "+name+": "+e.getMessage());
+    }
+    stats.put(key, handlerStats);
+    return handlerStats;
+  }
+
+  protected static ObjectName getObjectName(String kind, String name) throws JMException {
+    return new ObjectName(DOMAIN + ":type=" + kind + ",name=" + name);
+  }
+}
@@ -0,0 +1,92 @@
+package org.camunda.bpm.engine.cassandra.provider.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histogram of one handler. Calls are recorded without locking, the recorded interval
+ * is folded into the total histogram when an attribute is read.
+ */
+public class LatencyStats implements LatencyStatsMBean {
+
+  protected static final int SIGNIFICANT_DIGITS = 3;
+  protected static final double NANOS_PER_MICRO = 1000.0;
+
+  protected final String kind;
+  protected final String name;
+  protected final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+  protected final AtomicLong errors = new AtomicLong();
+
+  protected Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+  protected Histogram interval;
+
+  public LatencyStats(String kind, String name) {
+    this.kind = kind;
+    this.name = name;
+  }
+
+  public void record(long nanos, boolean failed) {
+    recorder.recordValue(Math.max(nanos, 0));
+    if(failed) {
+      errors.incrementAndGet();
+    }
+  }
+
+  protected synchronized Histogram getHistogram() {
+    interval = recorder.getIntervalHistogram(interval);
+    total.add(interval);
+    return total;
+  }
+
+  public String getKind() {
+    return kind;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getCount() {
+    return getHistogram().getTotalCount();
+  }
+
+  public long getErrors() {
+    return errors.get();
+  }
+
+  public double getMean() {
+    return getHistogram().getMean() / NANOS_PER_MICRO;
+  }
+
+  public double getMedian() {
+    return getPercentile(50.0);
+  }
+
+  public double get95thPercentile() {
+    return getPercentile(95.0);
+  }
+
+  public double get99thPercentile() {
+    return getPercentile(99.0);
+  }
+
+  public double get999thPercentile() {
+    return getPercentile(99.9);
+  }
+
+  public double getMax() {
+    return getHistogram().getMaxValue() / NANOS_PER_MICRO;
+  }
+
+  protected double getPercentile(double percentile) {
+    return getHistogram().getValueAtPercentile(percentile) / NANOS_PER_MICRO;
+  }
+
+  public synchronized void reset() {
+    interval = recorder.getIntervalHistogram(interval);
+    total.reset();
+    errors.set(0);
+  }
+}
@@ -0,0 +1,29 @@
+package org.camunda.bpm.engine.cassandra.provider.metrics;
+
+/**
+ * Latencies are in microseconds and cover the calls since the engine was started or the stats were reset.
+ */
+public interface LatencyStatsMBean {
+
+  String getKind();
+
+  String getName();
+
+  long getCount();
+
+  long getErrors();
+
+  double getMean();
+
+  double getMedian();
+
+  double get95thPercentile();
+
+  double get99thPercentile();
+
+  double get999thPercentile();
+
+  double getMax();
+
+  void reset();
+}
@@ -1,28 +1,91 @@
 package org.camunda.bpm.engine.cassandra.provider.operation;
 
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.impl.db.DbEntity;
 
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 
 public abstract class AbstractEntityOperationHandler<T extends DbEntity> implements EntityOperationHandler<T> {
 
+  //maximum number of concurrent reads in getEntitiesByIds
+  protected static final int MAX_CONCURRENT_READS = 32;
+
+  //select by id statements, by table name
+  private static Map<String, PreparedStatement> selectByIdStatements = new ConcurrentHashMap<String, PreparedStatement>();
+
+  protected static void prepareSelectById(CassandraProcessEngineConfiguration config, String tableName) {
+    selectByIdStatements.put(tableName, PreparedStatementRegistry.prepare(config, select().all()
+        .from(tableName)
+        .where(eq("id", bindMarker()))));
+  }
+
   public T getEntityById(CassandraPersistenceSession cassandraPersistenceSession, String id) {
 
     Session s = cassandraPersistenceSession.getSession();
     
-    Row row = s.execute(select().all().from(getTableName()).where(eq("id", id))).one();
+    Row row = s.execute(selectByIdStatements.get(getTableName()).bind(id).setIdempotent(true)).one();
     if(row == null) {
       return null;
     }
     
     CassandraSerializer<T> serializer = cassandraPersistenceSession.getSerializer(getEntityType());
     
+    return read(cassandraPersistenceSession, serializer, row);
+  }
+
+  /**
+   * Reads the entities with concurrent single partition reads instead of one blocking read per id.
+   * The result is in the order of the ids, ids that are not found are skipped.
+   */
+  public List<T> getEntitiesByIds(CassandraPersistenceSession cassandraPersistenceSession, List<String> ids) {
+    Session s = cassandraPersistenceSession.getSession();
+    PreparedStatement statement = selectByIdStatements.get(getTableName());
+    CassandraSerializer<T> serializer = CassandraPersistenceSession.getSerializer(getEntityType());
+
+    List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(ids.size());
+    List<T> result = new ArrayList<T>(ids.size());
+    int next = 0;
+    for (String id : ids) {
+      futures.add(s.executeAsync(statement.bind(id).setIdempotent(true)));
+      if(futures.size() - next >= MAX_CONCURRENT_READS) {
+        readResult(cassandraPersistenceSession, futures.get(next++), serializer, result);
+      }
+    }
+    while(next < futures.size()) {
+      readResult(cassandraPersistenceSession, futures.get(next++), serializer, result);
+    }
+    return result;
+  }
+
+  private void readResult(CassandraPersistenceSession session, ResultSetFuture future, CassandraSerializer<T> serializer, List<T> result) {
+    Row row = future.getUninterruptibly().one();
+    if(row != null) {
+      T entity = read(session, serializer, row);
+      if(entity != null) {
+        result.add(entity);
+      }
+    }
+  }
+
+  /**
+   * @return the entity of the row, null if the row does not hold a complete entity
+   */
+  protected T read(CassandraPersistenceSession session, CassandraSerializer<T> serializer, Row row) {
     return serializer.read(row);
   }
   
@@ -0,0 +1,13 @@
+package org.camunda.bpm.engine.cassandra.provider.operation;
+
+import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+
+import com.datastax.driver.core.BatchStatement;
+
+public class BulkDeleteByteArray implements BulkOperationHandler {
+
+  public void perform(CassandraPersistenceSession session, Object parameter, BatchStatement flush) {
+    flush.add(ByteArrayOperations.createDeleteStatement((String) parameter));
+  }
+
+}
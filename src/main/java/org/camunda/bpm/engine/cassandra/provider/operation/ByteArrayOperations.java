@@ -0,0 +1,235 @@
+package org.camunda.bpm.engine.cassandra.provider.operation;
+
+import static org.camunda.bpm.engine.cassandra.provider.table.ByteArrayTableHandler.TABLE_NAME;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
+import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
+import org.camunda.bpm.engine.impl.persistence.entity.ByteArrayEntity;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.utils.Bytes;
+import com.datastax.driver.core.utils.UUIDs;
+
+/**
+ * Stores byte arrays in fixed size chunks, optionally LZ4 compressed.
+ * Byte arrays are only read when the engine asks for them by id, never as part of a process instance.
+ *
+ * The chunks are not part of the variety batch, they would push it past the batch size limits of the server.
+ * They are written as separate statements under a new generation before the batches of the commit,
+ * the metadata row in the variety batch then switches to that generation. Chunks of a failed commit are never read
+ * and are removed with the byte array.
+ */
+public class ByteArrayOperations extends AbstractEntityOperationHandler<ByteArrayEntity> {
+
+  protected final static String INSERT = "INSERT into "+TABLE_NAME+" (id, name, deployment_id, revision, data_length, chunk_count, compressed, current_generation) "
+      + "values "
+      + "(:id, :name, :deployment_id, :revision, :data_length, :chunk_count, :compressed, :current_generation);";
+
+  protected final static String INSERT_CHUNK = "INSERT into "+TABLE_NAME+" (id, generation, chunk, data) values (?, ?, ?, ?);";
+
+  protected final static String DELETE = "DELETE FROM "+TABLE_NAME+" WHERE id = ?;";
+
+  protected final static String DELETE_CHUNK = "DELETE FROM "+TABLE_NAME+" WHERE id = ? AND generation = ? AND chunk = ?;";
+
+  protected final static String SELECT = "SELECT * FROM "+TABLE_NAME+" WHERE id = ?;";
+
+  //number of chunks fetched per page when reading a byte array
+  protected final static int CHUNK_FETCH_SIZE = 16;
+
+  private static PreparedStatement insertStatement=null;
+  private static PreparedStatement insertChunkStatement=null;
+  private static PreparedStatement deleteStatement=null;
+  private static PreparedStatement deleteChunkStatement=null;
+  private static PreparedStatement selectStatement=null;
+
+  private static int chunkSize = CassandraProcessEngineConfiguration.DEFAULT_BYTE_ARRAY_CHUNK_SIZE;
+  private static boolean compress = false;
+
+  //chunks stored for the byte arrays read or written in this transaction, to clean up after an update
+  private Map<String, StoredChunks> storedChunks = new HashMap<String, StoredChunks>();
+
+  public ByteArrayOperations(CassandraPersistenceSession cassandraPersistenceSession) {
+  }
+
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    insertStatement = PreparedStatementRegistry.prepare(config, INSERT);
+    insertChunkStatement = PreparedStatementRegistry.prepare(config, INSERT_CHUNK);
+    deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
+    deleteChunkStatement = PreparedStatementRegistry.prepare(config, DELETE_CHUNK);
+    selectStatement = PreparedStatementRegistry.prepare(config, SELECT);
+    if(config.getByteArrayChunkSize() <= 0) {
+      throw new IllegalArgumentException("byteArrayChunkSize must be positive");
+    }
+    chunkSize = config.getByteArrayChunkSize();
+    compress = config.isByteArrayCompression();
+    if(compress) {
+      //fail on start-up rather than on the first write if lz4 is not on the classpath
+      Lz4.init();
+    }
+  }
+
+  public void insert(CassandraPersistenceSession session, ByteArrayEntity entity) {
+    write(session, entity);
+  }
+
+  public void update(CassandraPersistenceSession session, ByteArrayEntity entity) {
+    StoredChunks oldChunks = storedChunks.get(entity.getId());
+    write(session, entity);
+    //chunks of the old generation are ignored on read, but should not be left behind
+    if(oldChunks != null && oldChunks.generation != null) {
+      for (int i = 0; i < oldChunks.count; i++) {
+        session.addStatement(deleteChunkStatement.bind(entity.getId(), oldChunks.generation, i));
+      }
+    }
+  }
+
+  public void delete(CassandraPersistenceSession session, ByteArrayEntity entity) {
+    session.addStatement(createDeleteStatement(entity.getId()));
+    storedChunks.remove(entity.getId());
+  }
+
+  public static Statement createDeleteStatement(String id) {
+    return deleteStatement.bind(id);
+  }
+
+  protected void write(CassandraPersistenceSession session, ByteArrayEntity entity) {
+    byte[] bytes = entity.getBytes();
+    byte[] stored = bytes;
+    boolean compressed = false;
+    if(bytes != null && compress) {
+      byte[] compressedBytes = Lz4.compress(bytes);
+      if(compressedBytes.length < bytes.length) {
+        stored = compressedBytes;
+        compressed = true;
+      }
+    }
+
+    int chunkCount = stored == null ? 0 : (stored.length + chunkSize - 1) / chunkSize;
+    UUID generation = chunkCount > 0 ? UUIDs.timeBased() : null;
+
+    CassandraSerializer<ByteArrayEntity> serializer = CassandraPersistenceSession.getSerializer(ByteArrayEntity.class);
+    BoundStatement statement = insertStatement.bind();
+    serializer.write(statement, entity);
+    if(bytes == null) {
+      statement.setToNull("data_length");
+    }
+    else {
+      statement.setInt("data_length", bytes.length);
+    }
+    statement.setInt("chunk_count", chunkCount);
+    statement.setBool("compressed", compressed);
+    statement.setUUID("current_generation", generation);
+    session.addStatement(statement);
+
+    for (int i = 0; i < chunkCount; i++) {
+      int offset = i * chunkSize;
+      ByteBuffer chunk = ByteBuffer.wrap(stored, offset, Math.min(chunkSize, stored.length - offset));
+      session.addUnbatchedStatement(insertChunkStatement.bind(entity.getId(), generation, i, chunk));
+    }
+
+    storedChunks.put(entity.getId(), new StoredChunks(generation, chunkCount));
+  }
+
+  @Override
+  public ByteArrayEntity getEntityById(CassandraPersistenceSession session, String id) {
+    BoundStatement statement = selectStatement.bind(id);
+    statement.setFetchSize(CHUNK_FETCH_SIZE);
+    statement.setIdempotent(true);
+    Iterator<Row> rows = session.getSession().execute(statement).iterator();
+    if(!rows.hasNext()) {
+      return null;
+    }
+
+    Row row = rows.next();
+    CassandraSerializer<ByteArrayEntity> serializer = CassandraPersistenceSession.getSerializer(ByteArrayEntity.class);
+    ByteArrayEntity entity = serializer.read(row);
+    int chunkCount = row.getInt("chunk_count");
+    UUID generation = row.getUUID("current_generation");
+    storedChunks.put(id, new StoredChunks(generation, chunkCount));
+    if(row.isNull("data_length")) {
+      return entity;
+    }
+    int length = row.getInt("data_length");
+    boolean compressed = row.getBool("compressed");
+
+    ByteArrayOutputStream stored = new ByteArrayOutputStream(compressed ? chunkCount * chunkSize : length);
+    while(row != null) {
+      //chunks of other generations are left over from an older value or from a failed commit
+      if(!row.isNull("chunk") && row.getUUID("generation").equals(generation) && row.getInt("chunk") < chunkCount) {
+        byte[] chunk = Bytes.getArray(row.getBytes("data"));
+        stored.write(chunk, 0, chunk.length);
+      }
+      row = rows.hasNext() ? rows.next() : null;
+    }
+
+    byte[] bytes = stored.toByteArray();
+    if(compressed) {
+      bytes = Lz4.decompress(bytes, length);
+    }
+    else if(bytes.length != length) {
+      bytes = Arrays.copyOf(bytes, length);
+    }
+    entity.setBytes(bytes);
+    return entity;
+  }
+
+  @Override
+  protected Class<ByteArrayEntity> getEntityType() {
+    return ByteArrayEntity.class;
+  }
+
+  @Override
+  protected String getTableName() {
+    return TABLE_NAME;
+  }
+
+  private static class StoredChunks {
+    final UUID generation;
+    final int count;
+
+    StoredChunks(UUID generation, int count) {
+      this.generation = generation;
+      this.count = count;
+    }
+  }
+
+  /**
+   * Keeps lz4 an optional dependency, the classes are only loaded when compression is enabled.
+   */
+  private static class Lz4 {
+    private static final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    static void init() {
+    }
+
+    static byte[] compress(byte[] bytes) {
+      byte[] dest = new byte[compressor.maxCompressedLength(bytes.length)];
+      int length = compressor.compress(bytes, 0, bytes.length, dest, 0, dest.length);
+      return Arrays.copyOf(dest, length);
+    }
+
+    static byte[] decompress(byte[] bytes, int length) {
+      byte[] dest = new byte[length];
+      decompressor.decompress(bytes, 0, dest, 0, length);
+      return dest;
+    }
+  }
+}
@@ -4,12 +4,13 @@ import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.DeploymentTableHandler;
 import org.camunda.bpm.engine.impl.persistence.entity.DeploymentEntity;
 
 import com.datastax.driver.core.BoundStatement;
-import com.datastax.driver.core.Session;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 
 public class DeploymentOperations extends AbstractEntityOperationHandler<DeploymentEntity> {
@@ -21,17 +22,22 @@ public class DeploymentOperations extends AbstractEntityOperationHandler<Deploym
   public DeploymentOperations(CassandraPersistenceSession cassandraPersistenceSession) {
   }
 
+  private static PreparedStatement insertStatement=null;
+  private static PreparedStatement deleteStatement=null;
+
   public static void prepare(CassandraProcessEngineConfiguration config) {
-		// TODO - prepare all statements
+    insertStatement = PreparedStatementRegistry.prepare(config, INSERT_STMNT);
+    deleteStatement = PreparedStatementRegistry.prepare(config, QueryBuilder.delete().all()
+        .from(DeploymentTableHandler.TABLE_NAME)
+        .where(eq("id", QueryBuilder.bindMarker())));
+    prepareSelectById(config, DeploymentTableHandler.TABLE_NAME);
   }
 
   public void insert(CassandraPersistenceSession session, DeploymentEntity entity) {
 
-    Session s = session.getSession();
-
     CassandraSerializer<DeploymentEntity> serializer = session.getSerializer(DeploymentEntity.class);
    
-    BoundStatement statement = s.prepare(INSERT_STMNT).bind();
+    BoundStatement statement = insertStatement.bind();
     
     serializer.write(statement, entity); 
     
@@ -39,7 +45,7 @@ public class DeploymentOperations extends AbstractEntityOperationHandler<Deploym
   }
 
   public void delete(CassandraPersistenceSession session, DeploymentEntity entity) {
-    session.addStatement(QueryBuilder.delete().all().from(DeploymentTableHandler.TABLE_NAME).where(eq("id", entity.getId())));
+    session.addStatement(deleteStatement.bind(entity.getId()));
   }
 
   public void update(CassandraPersistenceSession session, DeploymentEntity entity) {
@@ -1,78 +1,119 @@
 package org.camunda.bpm.engine.cassandra.provider.operation;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.put;
-
 import java.util.HashMap;
 import java.util.Map;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ExecutionIdByEventTypeAndNameIndex;
 import org.camunda.bpm.engine.cassandra.provider.indexes.IndexHandler;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ProcessIdByEventSubscriptionIdIndex;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessInstanceTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.type.UDTypeHandler;
+import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.db.EntityLoadListener;
 import org.camunda.bpm.engine.impl.persistence.entity.EventSubscriptionEntity;
 
-import com.datastax.driver.core.Session;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.UDTValue;
-import com.datastax.driver.core.querybuilder.QueryBuilder;
 
-public class EventSubscriptionOperations implements EntityOperationHandler<EventSubscriptionEntity> {
+public class EventSubscriptionOperations implements EntityOperationHandler<EventSubscriptionEntity>, EntityLoadListener {
+  protected final static String UPDATE = "UPDATE "+ProcessInstanceTableHandler.TABLE_NAME+" SET event_subscriptions[?] = ? WHERE id = ?;";
+
+  protected final static String DELETE = "DELETE event_subscriptions[?] FROM "+ProcessInstanceTableHandler.TABLE_NAME+" WHERE id = ?;";
+
+  private static PreparedStatement updateStatement=null;
+  private static PreparedStatement deleteStatement=null;
+
   protected static Map<Class<?>, IndexHandler<EventSubscriptionEntity>> indexHandlers = new HashMap<Class<?>, IndexHandler<EventSubscriptionEntity>>();
-  //Indexes are all immutable (e.g. index value is not going to change for a given entity), so no need to cache
+  //state of the event subscriptions as loaded or last written in this transaction, to skip unchanged writes
+  private Map<String, EventSubscriptionEntity> loadedEntities = new HashMap<String, EventSubscriptionEntity>();
+
   static {
     indexHandlers.put(ExecutionIdByEventTypeAndNameIndex.class, new ExecutionIdByEventTypeAndNameIndex());
     indexHandlers.put(ProcessIdByEventSubscriptionIdIndex.class, new ProcessIdByEventSubscriptionIdIndex());
   }
   
   public EventSubscriptionOperations(CassandraPersistenceSession cassandraPersistenceSession) {
+    cassandraPersistenceSession.addEntityLoadListener(this);
   }
 
   public static void prepare(CassandraProcessEngineConfiguration config) {
-    // TODO - prepare all statements
+    updateStatement = PreparedStatementRegistry.prepare(config, UPDATE);
+    deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
   }
 
   public void insert(CassandraPersistenceSession session, EventSubscriptionEntity entity) {
-    session.addStatement(createUpdateStatement(session, entity));
+    session.addStatement(createUpdateStatement(session, entity, createValue(session, entity)));
     
     for(IndexHandler<EventSubscriptionEntity> index:indexHandlers.values()){
       session.addStatement(index.getInsertStatement(session,entity));    
     }
+    updateLoadedEntity(entity);
   }
 
   public void delete(CassandraPersistenceSession session, EventSubscriptionEntity entity) {    
-    session.addStatement(QueryBuilder.delete().mapElt("event_subscriptions", entity.getId())
-        .from(ProcessInstanceTableHandler.TABLE_NAME).where(eq("id", entity.getProcessInstanceId())),
-        entity.getProcessInstanceId());
+    session.addStatement(deleteStatement.bind(entity.getId(), entity.getProcessInstanceId()), entity.getProcessInstanceId());
+    session.addProcessInstanceChange(entity.getProcessInstanceId(), ProcessInstanceLoader.EVENT_SUBSCRIPTIONS, entity.getId(), null);
     
     for(IndexHandler<EventSubscriptionEntity> index:indexHandlers.values()){
       session.addIndexStatement(index.getDeleteStatement(session,entity), entity.getProcessInstanceId());    
     }
+    loadedEntities.remove(entity.getId());
   }
 
   public void update(CassandraPersistenceSession session, EventSubscriptionEntity entity) {
-    session.addStatement(createUpdateStatement(session, entity), entity.getProcessInstanceId());
+    EventSubscriptionEntity oldEntity = loadedEntities.get(entity.getId());
+    UDTValue value = createValue(session, entity);
+
+    if(oldEntity == null || !value.equals(createValue(session, oldEntity))) {
+      session.addStatement(createUpdateStatement(session, entity, value), entity.getProcessInstanceId());
+    }
+    else {
+      //only the write of the unchanged value is skipped, the update still bumps the process instance version
+      session.batchShouldLock(entity.getProcessInstanceId());
+    }
     
     for(IndexHandler<EventSubscriptionEntity> index:indexHandlers.values()){
-      session.addIndexStatement(index.getInsertStatement(session,entity), entity.getProcessInstanceId());    
+      if(oldEntity == null) {
+        session.addIndexStatement(index.getInsertStatement(session,entity), entity.getProcessInstanceId());
+      }
+      else {
+        for(Statement st:index.getUpdateStatements(session, entity, oldEntity)){
+          session.addIndexStatement(st, entity.getProcessInstanceId());
+        }
+      }
     }
+    updateLoadedEntity(entity);
   }
 
-  protected Statement createUpdateStatement(CassandraPersistenceSession session, EventSubscriptionEntity entity) {
-    Session s = session.getSession();
+  protected UDTValue createValue(CassandraPersistenceSession session, EventSubscriptionEntity entity) {
     UDTypeHandler typeHander = session.getTypeHander(EventSubscriptionEntity.class);
     CassandraSerializer<EventSubscriptionEntity> serializer = session.getSerializer(EventSubscriptionEntity.class);
-    
-    UDTValue value = typeHander.createValue(s);
+
+    UDTValue value = typeHander.createValue(session.getSession());
     serializer.write(value, entity);
+    return value;
+  }
+
+  protected Statement createUpdateStatement(CassandraPersistenceSession session, EventSubscriptionEntity entity, UDTValue value) {
+    session.addProcessInstanceChange(entity.getProcessInstanceId(), ProcessInstanceLoader.EVENT_SUBSCRIPTIONS, entity.getId(), value);
     
-    return QueryBuilder.update(ProcessInstanceTableHandler.TABLE_NAME)
-        .with(put("event_subscriptions", entity.getId(), value))
-        .where(eq("id", entity.getProcessInstanceId()));
+    return updateStatement.bind(entity.getId(), value, entity.getProcessInstanceId());
+  }
+
+  private void updateLoadedEntity(EventSubscriptionEntity entity) {
+    loadedEntities.put(entity.getId(), CassandraPersistenceSession.getSerializer(EventSubscriptionEntity.class).copy(entity));
+  }
+
+  @Override
+  public void onEntityLoaded(DbEntity entity) {
+    if(entity instanceof EventSubscriptionEntity) {
+      updateLoadedEntity((EventSubscriptionEntity) entity);
+    }
   }
 
   public EventSubscriptionEntity getEntityById(CassandraPersistenceSession session, String id) {
@@ -84,7 +125,7 @@ public class EventSubscriptionOperations implements EntityOperationHandler<Event
     if(loadedCompostite==null){
       return null;
     }
-    return (EventSubscriptionEntity) loadedCompostite.get(ProcessInstanceLoader.EVENT_SUBSCRIPTIONS).get(id);
+    return (EventSubscriptionEntity) loadedCompostite.get(ProcessInstanceLoader.EVENT_SUBSCRIPTIONS, id);
   }
   
   public static IndexHandler<EventSubscriptionEntity> getIndexHandler(Class<?> type){
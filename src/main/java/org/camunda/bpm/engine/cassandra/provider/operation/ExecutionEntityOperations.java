@@ -1,13 +1,11 @@
 package org.camunda.bpm.engine.cassandra.provider.operation;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.put;
-
 import java.util.HashMap;
 import java.util.Map;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ExecutionIdByProcessIdIndex;
 import org.camunda.bpm.engine.cassandra.provider.indexes.IndexHandler;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ProcessIdByBusinessKeyIndex;
@@ -15,21 +13,40 @@ import org.camunda.bpm.engine.cassandra.provider.indexes.ProcessIdByExecutionIdI
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessInstanceTableHandler;
 import org.camunda.bpm.engine.cassandra.provider.type.UDTypeHandler;
+import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.db.EntityLoadListener;
 import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
 
-import com.datastax.driver.core.Session;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.UDTValue;
-import com.datastax.driver.core.querybuilder.QueryBuilder;
 
-public class ExecutionEntityOperations implements EntityOperationHandler<ExecutionEntity>{
+public class ExecutionEntityOperations implements EntityOperationHandler<ExecutionEntity>, EntityLoadListener {
   protected final static String INSERT = "INSERT into "+ProcessInstanceTableHandler.TABLE_NAME+" (id, version, business_key) "
       + "values "
       + "(?, ?, ?);";
+
+  protected final static String UPDATE = "UPDATE "+ProcessInstanceTableHandler.TABLE_NAME+" SET executions[?] = ? WHERE id = ?;";
+
+  protected final static String DELETE = "DELETE executions[?] FROM "+ProcessInstanceTableHandler.TABLE_NAME+" WHERE id = ?;";
+
+  protected final static String DELETE_PROCESS_INSTANCE = "DELETE FROM "+ProcessInstanceTableHandler.TABLE_NAME+" WHERE id = ? IF version = ?;";
+
+  //before 3.0 a conditional delete has to restrict the clustering columns as well, the version check of the
+  //clustered layout is left to the lock statement of the batch, its tombstone wins over the version update
+  protected final static String DELETE_PROCESS_INSTANCE_CLUSTERED = "DELETE FROM "+ProcessInstanceTableHandler.TABLE_NAME+" WHERE id = ?;";
+
+  private static PreparedStatement insertStatement=null;
+  private static PreparedStatement updateStatement=null;
+  private static PreparedStatement deleteStatement=null;
+  private static PreparedStatement deleteProcessInstanceStatement=null;
+  private static boolean clusteredVariables = false;
   
   protected static Map<Class<?>, IndexHandler<ExecutionEntity>> indexHandlers = new HashMap<Class<?>, IndexHandler<ExecutionEntity>>();
 
-  //Indexes are all immutable (e.g. index value is not going to change), so no need to cache
+  //state of the executions as loaded or last written in this transaction, to skip unchanged writes
+  private Map<String, ExecutionEntity> loadedEntities = new HashMap<String, ExecutionEntity>();
+
   static {
     indexHandlers.put(ProcessIdByBusinessKeyIndex.class, new ProcessIdByBusinessKeyIndex());
     indexHandlers.put(ProcessIdByExecutionIdIndex.class, new ProcessIdByExecutionIdIndex());
@@ -37,70 +54,109 @@ public class ExecutionEntityOperations implements EntityOperationHandler<Executi
   }
   
   public ExecutionEntityOperations(CassandraPersistenceSession cassandraPersistenceSession) {
+    cassandraPersistenceSession.addEntityLoadListener(this);
   }
 
   public static void prepare(CassandraProcessEngineConfiguration config) {
-		// TODO - prepare all statements
+    insertStatement = PreparedStatementRegistry.prepare(config, INSERT);
+    updateStatement = PreparedStatementRegistry.prepare(config, UPDATE);
+    deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
+    clusteredVariables = config.isClusteredVariables();
+    deleteProcessInstanceStatement = PreparedStatementRegistry.prepare(config,
+        clusteredVariables ? DELETE_PROCESS_INSTANCE_CLUSTERED : DELETE_PROCESS_INSTANCE);
   }
 
   public void insert(CassandraPersistenceSession session, ExecutionEntity entity) {
     
-    Session s = session.getSession();
-    
     if(entity.isProcessInstanceExecution()) {
-      session.addStatement(s.prepare(INSERT).bind(
+      session.addStatement(insertStatement.bind(
           entity.getId(),
           entity.getRevision(),
           entity.getBusinessKey()));
     }
     
-    session.addStatement(createUpdateStatement(session, entity));
+    session.addStatement(createUpdateStatement(session, entity, createValue(session, entity)));
 
     for(IndexHandler<ExecutionEntity> index:indexHandlers.values()){
       session.addStatement(index.getInsertStatement(session,entity));    
     }
+    updateLoadedEntity(entity);
   }
 
   public void delete(CassandraPersistenceSession session, ExecutionEntity entity) {
     
-    if(entity.isProcessInstanceExecution()) {
-      session.addStatement(QueryBuilder.delete().all()
-          .from(ProcessInstanceTableHandler.TABLE_NAME).where(eq("id", entity.getProcessInstanceId()))
-          .onlyIf(eq("version", entity.getRevision())),
+    if(entity.isProcessInstanceExecution() && clusteredVariables) {
+      session.addStatement(deleteProcessInstanceStatement.bind(entity.getProcessInstanceId()), entity.getProcessInstanceId());
+      session.addProcessInstanceDelete(entity.getProcessInstanceId());
+    }
+    else if(entity.isProcessInstanceExecution()) {
+      session.addStatement(deleteProcessInstanceStatement.bind(entity.getProcessInstanceId(), entity.getRevision()),
           entity.getProcessInstanceId());
+      session.addProcessInstanceDelete(entity.getProcessInstanceId());
       session.batchShouldNotLock(entity.getProcessInstanceId());
     }
     else {
-      session.addStatement(QueryBuilder.delete().mapElt("executions", entity.getId())
-          .from(ProcessInstanceTableHandler.TABLE_NAME).where(eq("id", entity.getProcessInstanceId())),
+      session.addStatement(deleteStatement.bind(entity.getId(), entity.getProcessInstanceId()),
           entity.getProcessInstanceId());
+      session.addProcessInstanceChange(entity.getProcessInstanceId(), ProcessInstanceLoader.EXECUTIONS, entity.getId(), null);
     }
     
     for(IndexHandler<ExecutionEntity> index:indexHandlers.values()){
       session.addIndexStatement(index.getDeleteStatement(session,entity), entity.getProcessInstanceId());    
     }
+    loadedEntities.remove(entity.getId());
   }
 
   public void update(CassandraPersistenceSession session, ExecutionEntity entity) {
-    session.addStatement(createUpdateStatement(session, entity), entity.getProcessInstanceId());
+    ExecutionEntity oldEntity = loadedEntities.get(entity.getId());
+    UDTValue value = createValue(session, entity);
+
+    //the engine updates an execution whenever its persistent state changed, which includes fields not stored here
+    if(oldEntity == null || !value.equals(createValue(session, oldEntity))) {
+      session.addStatement(createUpdateStatement(session, entity, value), entity.getProcessInstanceId());
+    }
+    else {
+      //only the write of the unchanged value is skipped, the update still bumps the process instance version
+      session.batchShouldLock(entity.getProcessInstanceId());
+    }
 
     for(IndexHandler<ExecutionEntity> index:indexHandlers.values()){
-      session.addIndexStatement(index.getInsertStatement(session,entity), entity.getProcessInstanceId());    
+      if(oldEntity == null) {
+        session.addIndexStatement(index.getInsertStatement(session,entity), entity.getProcessInstanceId());
+      }
+      else {
+        for(Statement st:index.getUpdateStatements(session, entity, oldEntity)){
+          session.addIndexStatement(st, entity.getProcessInstanceId());
+        }
+      }
     }
+    updateLoadedEntity(entity);
   }
 
-  protected Statement createUpdateStatement(CassandraPersistenceSession session, ExecutionEntity entity) {
-    Session s = session.getSession();
-
+  protected UDTValue createValue(CassandraPersistenceSession session, ExecutionEntity entity) {
     UDTypeHandler typeHander = session.getTypeHander(ExecutionEntity.class);
     CassandraSerializer<ExecutionEntity> serializer = session.getSerializer(ExecutionEntity.class);
-    
-    UDTValue value = typeHander.createValue(s);
+
+    UDTValue value = typeHander.createValue(session.getSession());
     serializer.write(value, entity);
+    return value;
+  }
+
+  protected Statement createUpdateStatement(CassandraPersistenceSession session, ExecutionEntity entity, UDTValue value) {
+    session.addProcessInstanceChange(entity.getProcessInstanceId(), ProcessInstanceLoader.EXECUTIONS, entity.getId(), value);
     
-    return QueryBuilder.update(ProcessInstanceTableHandler.TABLE_NAME)
-        .with(put("executions", entity.getId(), value))
-        .where(eq("id", entity.getProcessInstanceId()));
+    return updateStatement.bind(entity.getId(), value, entity.getProcessInstanceId());
+  }
+
+  private void updateLoadedEntity(ExecutionEntity entity) {
+    loadedEntities.put(entity.getId(), CassandraPersistenceSession.getSerializer(ExecutionEntity.class).copy(entity));
+  }
+
+  @Override
+  public void onEntityLoaded(DbEntity entity) {
+    if(entity instanceof ExecutionEntity) {
+      updateLoadedEntity((ExecutionEntity) entity);
+    }
   }
 
   @Override
@@ -19,6 +19,7 @@ import java.util.Map;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.indexes.IndexHandler;
 import org.camunda.bpm.engine.cassandra.provider.indexes.JobDefinitionIdByProcessDefinitionIdIndex;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
@@ -64,8 +65,9 @@ public class JobDefinitionOperations extends AbstractEntityOperationHandler<JobD
   } 
 
   public static void prepare(CassandraProcessEngineConfiguration config) {
-      insertStatement = config.getSession().prepare(INSERT);
-      deleteStatement = config.getSession().prepare(DELETE);
+      insertStatement = PreparedStatementRegistry.prepare(config, INSERT);
+      deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
+      prepareSelectById(config, TABLE_NAME);
   }
   
   public void insert(CassandraPersistenceSession session, JobDefinitionEntity entity) {
@@ -16,14 +16,24 @@ import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler.JOB_INDEX_TABLE;
 import static org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler.TABLE_NAME;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.JobShardRegistry;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ExclusiveJobsByDueDateIndex;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ExclusiveJobsByLockExpiryIndex;
+import org.camunda.bpm.engine.cassandra.provider.indexes.InactiveJobsByDefinitionIndex;
 import org.camunda.bpm.engine.cassandra.provider.indexes.IndexHandler;
 import org.camunda.bpm.engine.cassandra.provider.indexes.JobsByConfigurationIndex;
 import org.camunda.bpm.engine.cassandra.provider.indexes.JobsByExecutionIdIndex;
@@ -35,23 +45,30 @@ import org.camunda.bpm.engine.impl.db.EntityLoadListener;
 import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
 
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 
 /**
  * Jobs are essentially stored in a queue, which is a bad idea in Cassandra generally. 
  * The queue is sharded to avoid the tombstone issues, however it will still cause hot spots in the cassandra cluster. 
+ * Each shard can be spread over several buckets (see jobIndexBuckets) to spread the load over more of the cluster.
+ * The shards that may hold jobs are recorded in the shard registry (see JobShardRegistry).
  * This implementation can support small to medium throughput (please don't ask me for specific numbers)
  * For medium / large implementations use a proper queue. 
  * 
+ * Failed jobs without retries and suspended jobs are left out of the queue until they can be acquired again.
  * Unlocked jobs are stored separately from the locked jobs. 
  * Unlocked jobs are sorted by job due date and are always returned in this order.
  * Locked jobs are sorted by the lock expiry time. The jobs where the locks have expired are always selected before 
  * unlocked jobs on the premise that they have already gone through the job prioritization waited for the lock expiry interval 
  * and generally need to be executed yesterday  
  * 
- * After much dithering we've decided not to support priorities, use a queue if priorities are required
+ * Priorities are supported with a small number of bands (see jobPriorityBands and jobPriorityBandBoundaries),
+ * jobs of a higher band are acquired first and jobs within a band in the order of the due date.
+ * Use a queue if fine grained priorities are required.
  *  
  * @author Natalia Levine
  *
@@ -59,6 +76,7 @@ import com.datastax.driver.core.querybuilder.QueryBuilder;
  */
 
 public class JobOperations extends AbstractEntityOperationHandler<JobEntity> implements EntityLoadListener {
+  private final static Logger LOG = Logger.getLogger(JobOperations.class.getName());
   
 	private final static String INSERT = "INSERT into "+TABLE_NAME+" ("
 	      + "id, "
@@ -98,14 +116,61 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
   private final static String INSERT_INDEX = "INSERT into "+JOB_INDEX_TABLE+" ("
       + "shard_id, "
       + "is_locked, "
+      + "bucket, "
+      + "band, "
       + "sort_time, "
       + "id"
     + ") values "
-    + "(?, ?, ?, ?);";
+    + "(?, ?, ?, ?, ?, ?);";
+
+  private final static String INSERT_DENORMALIZED_INDEX = "INSERT into "+JOB_INDEX_TABLE+" ("
+      + "shard_id, "
+      + "is_locked, "
+      + "bucket, "
+      + "band, "
+      + "sort_time, "
+      + "id, "
+      + "type, "
+      + "due_date, "
+      + "lock_exp_time, "
+      + "lock_owner, "
+      + "exclusive, "
+      + "execution_id, "
+      + "process_instance_id, "
+      + "process_def_id, "
+      + "process_def_key, "
+      + "retries, "
+      + "exception_stack_id, "
+      + "exception_message, "
+      + "repeat, "
+      + "handler_type, "
+      + "handler_cfg, "
+      + "deployment_id, "
+      + "suspension_state, "
+      + "job_def_id, "
+      + "sequence_counter, "
+      + "priority, "
+      + "revision"
+    + ") values "
+    + "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+
+  private final static String INDEX_KEY = "shard_id = ? AND is_locked = ? AND bucket = ? AND band = ? AND sort_time = ? AND id = ?";
+
+  //column sets of the narrow job updates, smallest first, an update writes the first set holding all its changed columns
+  //and a full update of all columns if there is none
+  private final static String[][] UPDATE_COLUMNS = {
+      {"due_date"},
+      {"suspension_state"},
+      {"priority"},
+      {"lock_owner", "lock_exp_time"}, //lock and unlock
+      {"retries", "exception_stack_id", "exception_message", "lock_owner", "lock_exp_time", "due_date"} //failure and retry
+  };
 
   private final static String DELETE_INDEX = "DELETE FROM "+JOB_INDEX_TABLE+" WHERE "
   		  + "shard_id = ? AND "
         + "is_locked = ? AND "
+        + "bucket = ? AND "
+        + "band = ? AND "
 	      + "sort_time = ? AND "
 	      + "id = ? ;";
 
@@ -114,7 +179,11 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
   //private static PreparedStatement selectStatement=null;
   private static PreparedStatement insertIndexStatement=null;
   private static PreparedStatement deleteIndexStatement=null;
+  private static List<ColumnUpdate> columnUpdates=new ArrayList<ColumnUpdate>();
   
+  protected static boolean denormalizedIndex;
+  protected static int buckets; //number of job index partitions per shard
+  protected static long[] bandBoundaries; //lowest priority of each job priority band above band 0
   protected static int shardSizeMillis; //size of the job shard
   protected static int shardInitNumber; //how far to go back to find active shards on start-up 
   //protected static int maxPriority; //maximum possible priority
@@ -126,21 +195,28 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
     indexHandlers.put(ExclusiveJobsByDueDateIndex.class, new ExclusiveJobsByDueDateIndex());
     indexHandlers.put(ExclusiveJobsByLockExpiryIndex.class, new ExclusiveJobsByLockExpiryIndex());
     indexHandlers.put(JobsByExecutionIdIndex.class, new JobsByExecutionIdIndex());
+    indexHandlers.put(InactiveJobsByDefinitionIndex.class, new InactiveJobsByDefinitionIndex());
   }
   
   private Map<String, JobEntity> entityCache=new HashMap<String,JobEntity>();
+  private Set<String> incompleteJobIds=new HashSet<String>();
   
   public JobOperations(CassandraPersistenceSession cassandraPersistenceSession) {
     cassandraPersistenceSession.addEntityLoadListener(this);
   }
 
   public static void prepare(CassandraProcessEngineConfiguration config) {
-      insertStatement = config.getSession().prepare(INSERT);
-      deleteStatement = config.getSession().prepare(DELETE);
-    //  selectStatement = config.getSession().prepare(SELECT);
-      insertIndexStatement = config.getSession().prepare(INSERT_INDEX);
-      deleteIndexStatement = config.getSession().prepare(DELETE_INDEX);
-     /* deleteIndexStatement = config.getSession().prepare(QueryBuilder.delete().all()
+      insertStatement = PreparedStatementRegistry.prepare(config, INSERT);
+      deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
+    //  selectStatement = PreparedStatementRegistry.prepare(config, SELECT);
+      denormalizedIndex = config.isDenormalizedJobIndex();
+      buckets = config.getJobIndexBuckets();
+      bandBoundaries = config.getJobPriorityBandBoundaries();
+      insertIndexStatement = PreparedStatementRegistry.prepare(config, denormalizedIndex ? INSERT_DENORMALIZED_INDEX : INSERT_INDEX);
+      deleteIndexStatement = PreparedStatementRegistry.prepare(config, DELETE_INDEX);
+      prepareSelectById(config, TABLE_NAME);
+      prepareColumnUpdates(config);
+     /* deleteIndexStatement = PreparedStatementRegistry.prepare(config, QueryBuilder.delete().all()
           .from(JOB_INDEX_TABLE)
           .where(eq("shard_id", QueryBuilder.bindMarker()))
           .and(eq("is_locked",QueryBuilder.bindMarker()))
@@ -166,25 +242,38 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
     serializer.write(statement, entity);     
     session.addStatement(statement);
 
-    insertIndex(session, entity);
+    if(isAcquirable(entity)) {
+      insertIndex(session, entity);
+    }
     
     for(IndexHandler<JobEntity> index:indexHandlers.values()){
       session.addStatement(index.getInsertStatement(session,entity));    
     }
     
-    entityCache.put(entity.getId(), entity);
+    updateEntityCache(entity);
   }
   
   protected void insertIndex(CassandraPersistenceSession session, JobEntity entity) {
     BoundStatement indStatement = insertIndexStatement.bind();    
+    if(denormalizedIndex) {
+      CassandraPersistenceSession.getSerializer(JobEntity.class).write(indStatement, entity);
+    }
     bindKeyFields(session, entity, indStatement);
     session.addStatement(indStatement);
+
+    JobEntityKey key = new JobEntityKey(entity, shardSizeMillis, buckets, bandBoundaries);
+    Statement registerStatement = JobShardRegistry.getRegisterStatement(session.getSession(), key.getShardId(), key.isLocked());
+    if(registerStatement != null) {
+      session.addStatement(registerStatement);
+    }
   }
 
-  protected void bindKeyFields(CassandraPersistenceSession session, JobEntity entity, BoundStatement statement) {
-    JobEntityKey key = new JobEntityKey(entity, shardSizeMillis);
+  protected static void bindKeyFields(CassandraPersistenceSession session, JobEntity entity, BoundStatement statement) {
+    JobEntityKey key = new JobEntityKey(entity, shardSizeMillis, buckets, bandBoundaries);
     statement.setDate("shard_id", new Date(key.getShardId()));
     statement.setBool("is_locked", key.isLocked());
+    statement.setInt("bucket", key.getBucket());
+    statement.setInt("band", key.getBand());
     statement.setDate("sort_time", new Date(key.getSortTime()));
     statement.setString("id", key.getId());
   }
@@ -194,7 +283,9 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
     session.addStatement(statement);
 
     JobEntity oldEntity = getCachedEntity(entity);
-    deleteIndex(session, oldEntity);
+    if(isAcquirable(oldEntity)) {
+      deleteIndex(session, oldEntity);
+    }
     
     for(IndexHandler<JobEntity> index:indexHandlers.values()){
       session.addStatement(index.getDeleteStatement(session,oldEntity));    
@@ -202,9 +293,26 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
   }
 
   protected void deleteIndex(CassandraPersistenceSession session, JobEntity entity) {
+    session.addStatement(createDeleteIndexStatement(session, entity));    
+  }
+
+  public static Statement createDeleteIndexStatement(CassandraPersistenceSession session, JobEntity entity) {
     BoundStatement indStatement = deleteIndexStatement.bind();    
     bindKeyFields(session, entity, indStatement);
-    session.addStatement(indStatement);    
+    return indStatement;
+  }
+
+  /**
+   * Deletes the index row as read, for rows that do not hold a complete job.
+   */
+  public static Statement createDeleteIndexStatement(Row indexRow) {
+    return deleteIndexStatement.bind(
+        indexRow.getDate("shard_id"),
+        indexRow.getBool("is_locked"),
+        indexRow.getInt("bucket"),
+        indexRow.getInt("band"),
+        indexRow.getDate("sort_time"),
+        indexRow.getString("id"));
   }
 
   public void update(CassandraPersistenceSession session, JobEntity entity) {
@@ -215,9 +323,18 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
       entity.setDuedate(new Date(now));  
     }
 
-    JobEntityKey newKey= new JobEntityKey(entity, shardSizeMillis);
-    JobEntityKey oldKey= new JobEntityKey(oldEntity, shardSizeMillis);
-    if(!newKey.equals(oldKey) ){
+    JobEntityKey newKey= new JobEntityKey(entity, shardSizeMillis, buckets, bandBoundaries);
+    JobEntityKey oldKey= new JobEntityKey(oldEntity, shardSizeMillis, buckets, bandBoundaries);
+    boolean acquirable = isAcquirable(entity);
+    boolean wasAcquirable = isAcquirable(oldEntity);
+    if(acquirable && !wasAcquirable) {
+      //retries set again or job activated
+      insertIndex(session, entity);
+    }
+    else if(!acquirable && wasAcquirable) {
+      deleteIndex(session, oldEntity);
+    }
+    else if(acquirable && !newKey.equals(oldKey) ){
       //changed the key fields - have to delete / insert 
 
       //if the sort time has changed to some time in the past we need to reset it to now.
@@ -234,9 +351,29 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
         entity.setDuedate(new Date(now)); 
       }
       deleteIndex(session, oldEntity);
+      insertIndex(session, entity);
     }
     
-    insert(session, entity);
+    CassandraSerializer<JobEntity> serializer = CassandraPersistenceSession.getSerializer(JobEntity.class);
+    BoundStatement newValues = insertStatement.bind();
+    serializer.write(newValues, entity);
+    BoundStatement oldValues = insertStatement.bind();
+    serializer.write(oldValues, oldEntity);
+    List<String> changedColumns = getChangedColumns(newValues, oldValues);
+
+    if(!changedColumns.isEmpty()) {
+      ColumnUpdate columnUpdate = getColumnUpdate(changedColumns);
+      BoundStatement statement = columnUpdate.bind(columnUpdate.jobStatement, newValues);
+      statement.setString("id", entity.getId());
+      session.addStatement(statement);
+
+      //the index copy of the job has to follow, unless it was just rewritten under the new key
+      if(denormalizedIndex && acquirable && wasAcquirable && newKey.equals(oldKey)) {
+        BoundStatement indStatement = columnUpdate.bind(columnUpdate.indexStatement, newValues);
+        bindKeyFields(session, entity, indStatement);
+        session.addStatement(indStatement);
+      }
+    }
 
     for(IndexHandler<JobEntity> index:indexHandlers.values()){
       for(Statement st:index.getUpdateStatements(session, entity, oldEntity)){
@@ -244,17 +381,86 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
       }
     }
     
-    entityCache.put(entity.getId(), entity);
+    updateEntityCache(entity);
+  }
+
+  /**
+   * Returns the job columns that differ between the new and the cached state, e.g. locking a job only changes
+   * the lock owner and expiry time.
+   */
+  protected List<String> getChangedColumns(BoundStatement newValues, BoundStatement oldValues) {
+    List<String> changedColumns = new ArrayList<String>();
+    for(ColumnDefinitions.Definition column : insertStatement.getVariables()) {
+      String name = column.getName();
+      ByteBuffer newValue = newValues.getBytesUnsafe(name);
+      ByteBuffer oldValue = oldValues.getBytesUnsafe(name);
+      if(!"id".equals(name) && (newValue == null ? oldValue != null : !newValue.equals(oldValue))) {
+        changedColumns.add(name);
+      }
+    }
+    return changedColumns;
+  }
+
+  protected static void prepareColumnUpdates(CassandraProcessEngineConfiguration config) {
+    columnUpdates.clear();
+    for(String[] columns : UPDATE_COLUMNS) {
+      columnUpdates.add(new ColumnUpdate(config, Arrays.asList(columns)));
+    }
+    List<String> allColumns = new ArrayList<String>();
+    for(ColumnDefinitions.Definition column : insertStatement.getVariables()) {
+      if(!"id".equals(column.getName())) {
+        allColumns.add(column.getName());
+      }
+    }
+    columnUpdates.add(new ColumnUpdate(config, allColumns));
+  }
+
+  protected static ColumnUpdate getColumnUpdate(List<String> changedColumns) {
+    for(ColumnUpdate columnUpdate : columnUpdates) {
+      if(columnUpdate.columns.containsAll(changedColumns)) {
+        return columnUpdate;
+      }
+    }
+    throw new IllegalStateException("No update statement for the job columns "+changedColumns);
+  }
+
+  /**
+   * Rows of the job table without a type are left by an update of a job that was deleted concurrently,
+   * the narrow update does not check that the row exists. They are read as a missing job and removed
+   * with the commit of the command.
+   */
+  @Override
+  protected JobEntity read(CassandraPersistenceSession session, CassandraSerializer<JobEntity> serializer, Row row) {
+    if(row.isNull("type")) {
+      String id = row.getString("id");
+      LOG.fine("Removing incomplete job row "+id);
+      incompleteJobIds.add(id);
+      session.addStatement(deleteStatement.bind(id));
+      return null;
+    }
+    return serializer.read(row);
+  }
+
+  /**
+   * @return true if the job was read in this transaction as an incomplete row and removed,
+   * index rows that still point to it can be removed as well
+   */
+  public boolean isIncomplete(String id) {
+    return incompleteJobIds.contains(id);
   }
 
   @Override
   public void onEntityLoaded(DbEntity entity) {
     if(entity instanceof JobEntity){
-      CassandraSerializer<JobEntity> serializer = CassandraPersistenceSession.getSerializer(JobEntity.class);
-      JobEntity copy= serializer.copy((JobEntity) entity);
-      entityCache.put(entity.getId(), copy);
+      updateEntityCache((JobEntity) entity);
     }
   }
+
+  //the cache must hold a copy, the engine keeps modifying the entity it passed in
+  private void updateEntityCache(JobEntity entity) {
+    CassandraSerializer<JobEntity> serializer = CassandraPersistenceSession.getSerializer(JobEntity.class);
+    entityCache.put(entity.getId(), serializer.copy(entity));
+  }
   
   protected Class<JobEntity> getEntityType() {
     return JobEntity.class;
@@ -293,6 +499,52 @@ public class JobOperations extends AbstractEntityOperationHandler<JobEntity> imp
     return null;
   }*/
   
+  /**
+   * Failed jobs without retries and suspended jobs are not in the job acquisition index,
+   * they can be found through the InactiveJobsByDefinitionIndex.
+   */
+  public static boolean isAcquirable(JobEntity entity) {
+    return InactiveJobsByDefinitionIndex.getInactiveState(entity) == null;
+  }
+
+  public static boolean isDenormalizedIndex() {
+    return denormalizedIndex;
+  }
+
+  /**
+   * An update of a fixed set of job columns, prepared for the job table and for the denormalized job index.
+   */
+  protected static class ColumnUpdate {
+    protected final List<String> columns;
+    protected final PreparedStatement jobStatement;
+    protected final PreparedStatement indexStatement;
+
+    protected ColumnUpdate(CassandraProcessEngineConfiguration config, List<String> columns) {
+      this.columns = columns;
+      this.jobStatement = PreparedStatementRegistry.prepare(config, createQuery(TABLE_NAME, "id = ?", columns));
+      this.indexStatement = denormalizedIndex ? PreparedStatementRegistry.prepare(config, createQuery(JOB_INDEX_TABLE, INDEX_KEY, columns)) : null;
+    }
+
+    protected static String createQuery(String table, String where, List<String> columns) {
+      StringBuilder query = new StringBuilder("UPDATE ").append(table).append(" SET ");
+      for (int i = 0; i < columns.size(); i++) {
+        query.append(i > 0 ? ", " : "").append(columns.get(i)).append(" = ?");
+      }
+      return query.append(" WHERE ").append(where).append(";").toString();
+    }
+
+    /**
+     * Binds the columns from the new values of the job, the key columns in the where clause are left to the caller.
+     */
+    protected BoundStatement bind(PreparedStatement statement, BoundStatement newValues) {
+      BoundStatement bound = statement.bind();
+      for (String name : columns) {
+        bound.setBytesUnsafe(name, newValues.getBytesUnsafe(name));
+      }
+      return bound;
+    }
+  }
+
   public static IndexHandler<JobEntity> getIndexHandler(Class<?> type){
     return indexHandlers.get(type);
   }
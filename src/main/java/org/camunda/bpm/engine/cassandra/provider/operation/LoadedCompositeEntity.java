@@ -1,34 +1,122 @@
 package org.camunda.bpm.engine.cassandra.provider.operation;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.db.EntityLoadListener;
+
+import com.datastax.driver.core.UDTValue;
 
 public class LoadedCompositeEntity {
-  
+
   protected DbEntity primary;
-  
-  protected Map<String, Map<String, ? extends DbEntity>> embeddedEntities = new HashMap<String, Map<String, ? extends DbEntity>>();
-  
+
+  protected Map<String, Map<String, DbEntity>> embeddedEntities = new HashMap<String, Map<String, DbEntity>>();
+
+  //embedded entities that are deserialized on first access, the serialized maps are never modified as they can be shared
+  protected Map<String, Map<String, UDTValue>> serializedEntities = new HashMap<String, Map<String, UDTValue>>();
+  protected Map<String, CassandraSerializer<? extends DbEntity>> serializers = new HashMap<String, CassandraSerializer<? extends DbEntity>>();
+  protected Set<String> deserialized = new HashSet<String>();
+
+  //notified about entities deserialized after the composite was loaded
+  protected EntityLoadListener entityLoadListener;
+
   public Map<String, ? extends DbEntity> get(String name) {
+    Map<String, UDTValue> serialized = serializedEntities.get(name);
+    if(serialized != null && !deserialized.contains(name)) {
+      for (String id : serialized.keySet()) {
+        get(name, id);
+      }
+      deserialized.add(name);
+    }
     return embeddedEntities.get(name);
   }
 
+  /**
+   * Returns a single embedded entity, only this entity is deserialized if the collection has not been accessed yet.
+   */
+  public DbEntity get(String name, String id) {
+    Map<String, DbEntity> entities = embeddedEntities.get(name);
+    if(entities == null) {
+      return null;
+    }
+    DbEntity entity = entities.get(id);
+    if(entity == null) {
+      Map<String, UDTValue> serialized = serializedEntities.get(name);
+      if(serialized != null && serialized.containsKey(id)) {
+        entity = serializers.get(name).read(serialized.get(id));
+        entities.put(id, entity);
+        if(entityLoadListener != null) {
+          entityLoadListener.onEntityLoaded(entity);
+        }
+      }
+    }
+    return entity;
+  }
+
+  /**
+   * Returns the embedded entities with the given value of a text field, deserializing only the matching entries.
+   * Only collections added with {@link #putSerialized(String, Map, CassandraSerializer)} can be searched.
+   */
+  public List<DbEntity> find(String name, String field, String value) {
+    List<DbEntity> result = new ArrayList<DbEntity>();
+    Map<String, UDTValue> serialized = serializedEntities.get(name);
+    if(serialized == null) {
+      return result;
+    }
+    for (Map.Entry<String, UDTValue> entry : serialized.entrySet()) {
+      if(value.equals(entry.getValue().getString(field))) {
+        DbEntity entity = get(name, entry.getKey());
+        if(entity != null) {
+          result.add(entity);
+        }
+      }
+    }
+    return result;
+  }
+
+  public boolean contains(String name, String id) {
+    Map<String, UDTValue> serialized = serializedEntities.get(name);
+    if(serialized != null) {
+      return serialized.containsKey(id);
+    }
+    Map<String, DbEntity> entities = embeddedEntities.get(name);
+    return entities != null && entities.containsKey(id);
+  }
+
   @SuppressWarnings({"unchecked", "rawtypes"})
   public void put(String name,   Map entities) {
     embeddedEntities.put(name, entities);
   }
-  
+
+  public void putSerialized(String name, Map<String, UDTValue> values, CassandraSerializer<? extends DbEntity> serializer) {
+    embeddedEntities.put(name, new HashMap<String, DbEntity>());
+    serializedEntities.put(name, values);
+    serializers.put(name, serializer);
+  }
+
   public DbEntity getPrimaryEntity() {
     return primary;
   }
-  
+
   public void setMainEntity(DbEntity mainEntity) {
     this.primary = mainEntity;
   }
-  
-  public Map<String, Map<String, ? extends DbEntity>> getEmbeddedEntities() {
+
+  /**
+   * @return the embedded entities deserialized so far
+   */
+  public Map<String, Map<String, DbEntity>> getEmbeddedEntities() {
     return embeddedEntities;
   }
+
+  public void setEntityLoadListener(EntityLoadListener entityLoadListener) {
+    this.entityLoadListener = entityLoadListener;
+  }
 }
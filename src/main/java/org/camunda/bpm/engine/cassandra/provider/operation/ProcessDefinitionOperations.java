@@ -8,6 +8,7 @@ import java.util.Map;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.indexes.IndexHandler;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessDefinitionTableHandler;
@@ -15,7 +16,6 @@ import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
 
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.Session;
 
 public class ProcessDefinitionOperations extends AbstractEntityOperationHandler<ProcessDefinitionEntity> {
   
@@ -23,14 +23,14 @@ public class ProcessDefinitionOperations extends AbstractEntityOperationHandler<
       + "values "
       + "(?, ?, ?, ?, ?, ?, ?);";
 
-  private final static String DELETE = "DELETE FROM "+TABLE_NAME+" WHERE id = '?';";
+  private final static String DELETE = "DELETE FROM "+TABLE_NAME+" WHERE id = ?;";
 
   //need a separate index table because it is a sorted index
   private final static String INSERT_IDX_VERSION = "INSERT into "+TABLE_NAME_IDX_VERSION+" (key, version, id) "
       + "values "
       + "(?, ?, ?);";
   
-  private final static String DELETE_IDX_VERSION = "DELETE FROM "+TABLE_NAME_IDX_VERSION+" WHERE key = '?' AND version = ?;";
+  private final static String DELETE_IDX_VERSION = "DELETE FROM "+TABLE_NAME_IDX_VERSION+" WHERE key = ? AND version = ?;";
 
   private static PreparedStatement insertStatement=null;
   private static PreparedStatement insertVersionIndexStatement=null;
@@ -44,15 +44,14 @@ public class ProcessDefinitionOperations extends AbstractEntityOperationHandler<
   }
 
   public static void prepare(CassandraProcessEngineConfiguration config) {
-      insertStatement = config.getSession().prepare(INSERT);
-      insertVersionIndexStatement = config.getSession().prepare(INSERT_IDX_VERSION);
-      deleteStatement = config.getSession().prepare(DELETE);
-      deleteVersionIndexStatement = config.getSession().prepare(DELETE_IDX_VERSION);	  
+      insertStatement = PreparedStatementRegistry.prepare(config, INSERT);
+      insertVersionIndexStatement = PreparedStatementRegistry.prepare(config, INSERT_IDX_VERSION);
+      deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
+      deleteVersionIndexStatement = PreparedStatementRegistry.prepare(config, DELETE_IDX_VERSION);
+      prepareSelectById(config, TABLE_NAME);
   }
   
   public void insert(CassandraPersistenceSession session, ProcessDefinitionEntity entity) {
-    Session s = session.getSession();
-    
     CassandraSerializer<ProcessDefinitionEntity> serializer = session.getSerializer(ProcessDefinitionEntity.class);
    
     // insert deployment
@@ -1,20 +1,24 @@
 package org.camunda.bpm.engine.cassandra.provider.operation;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 import static org.camunda.bpm.engine.cassandra.provider.table.ProcessInstanceTableHandler.TABLE_NAME;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.ProcessInstanceBatch;
-import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
+import org.camunda.bpm.engine.cassandra.provider.ProcessInstanceCache;
+import org.camunda.bpm.engine.cassandra.provider.ProcessInstanceCache.CachedProcessInstance;
+import org.camunda.bpm.engine.impl.db.DbEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.EventSubscriptionEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.VariableInstanceEntity;
 
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.UDTValue;
@@ -28,53 +32,45 @@ public class ProcessInstanceLoader implements CompositeEntityLoader {
   public static final String EXECUTIONS = "executions";
   public static final String VARIABLES = "variables";
 
+  protected final static String SELECT = "SELECT * FROM "+TABLE_NAME+" WHERE id = ?;";
+
+  //version check of a cached row, a single cell read, version is static in the clustered variables layout
+  protected final static String SELECT_VERSION = "SELECT version FROM "+TABLE_NAME+" WHERE id = ? LIMIT 1;";
+
+  private static PreparedStatement selectStatement=null;
+  private static PreparedStatement selectVersionStatement=null;
+  private static boolean clusteredVariables = false;
+
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    selectStatement = PreparedStatementRegistry.prepare(config, SELECT);
+    selectVersionStatement = PreparedStatementRegistry.prepare(config, SELECT_VERSION);
+    clusteredVariables = config.isClusteredVariables();
+  }
+
   public LoadedCompositeEntity getEntityById(CassandraPersistenceSession session, String id) {
     LoadedCompositeEntity loadedProcessInstance = new LoadedCompositeEntity();
 
-    Session s = session.getSession();
-
-    Row row = s.execute(select().all().from(TABLE_NAME).where(eq("id", id))).one();
-    if(row == null) {
+    CachedProcessInstance serializedProcessInstance = getSerializedProcessInstance(session, id);
+    if(serializedProcessInstance == null) {
       return null;
     }
 
-    int version = row.getInt("version");
-    String businessKey = row.getString("business_key");
+    int version = serializedProcessInstance.getVersion();
+    String businessKey = serializedProcessInstance.getBusinessKey();
 
-    CassandraSerializer<ExecutionEntity> executionSerializer = session.getSerializer(ExecutionEntity.class);
-    CassandraSerializer<EventSubscriptionEntity> eventSubscriptionSerializer = session.getSerializer(EventSubscriptionEntity.class);
-    CassandraSerializer<VariableInstanceEntity> variableSerializer = session.getSerializer(VariableInstanceEntity.class);
-
-    // deserialize all executions
-    Map<String, UDTValue> executionsMap = row.getMap(EXECUTIONS, String.class, UDTValue.class);
-    Map<String, ExecutionEntity> executions = new HashMap<String, ExecutionEntity>();
-    for (UDTValue serializedExecution : executionsMap.values()) {
-      ExecutionEntity executionEntity = executionSerializer.read(serializedExecution);
-      executions.put(executionEntity.getId(), executionEntity);
-      if(executionEntity.isProcessInstanceExecution()) {
-        loadedProcessInstance.setMainEntity(executionEntity);
-      }
+    loadedProcessInstance.putSerialized(EXECUTIONS, serializedProcessInstance.getEmbedded(EXECUTIONS),
+        session.getSerializer(ExecutionEntity.class));
+    loadedProcessInstance.putSerialized(EVENT_SUBSCRIPTIONS, serializedProcessInstance.getEmbedded(EVENT_SUBSCRIPTIONS),
+        session.getSerializer(EventSubscriptionEntity.class));
+    loadedProcessInstance.putSerialized(VARIABLES, serializedProcessInstance.getEmbedded(VARIABLES),
+        session.getSerializer(VariableInstanceEntity.class));
 
+    // the execution tree is always needed, event subscriptions and variables are deserialized on first access
+    for (DbEntity execution : loadedProcessInstance.get(EXECUTIONS).values()) {
+      if(((ExecutionEntity) execution).isProcessInstanceExecution()) {
+        loadedProcessInstance.setMainEntity(execution);
+      }
     }
-    loadedProcessInstance.put(EXECUTIONS, executions);
-
-    // deserialize all event subscription
-    Map<String, UDTValue> eventSubscriptionsMap = row.getMap(EVENT_SUBSCRIPTIONS, String.class, UDTValue.class);
-    Map<String, EventSubscriptionEntity> eventSubscriptions = new HashMap<String, EventSubscriptionEntity>();
-    for (UDTValue serializedEventSubscription : eventSubscriptionsMap.values()) {
-      EventSubscriptionEntity eventSubscriptionEntity = eventSubscriptionSerializer.read(serializedEventSubscription);
-      eventSubscriptions.put(eventSubscriptionEntity.getId(), eventSubscriptionEntity);
-    }
-    loadedProcessInstance.put(EVENT_SUBSCRIPTIONS, eventSubscriptions);
-
-    // deserialize all variables
-    Map<String, UDTValue> variablesMap = row.getMap(VARIABLES, String.class, UDTValue.class);
-    Map<String, VariableInstanceEntity> variables = new HashMap<String, VariableInstanceEntity>();
-    for (UDTValue serializedVariable : variablesMap.values()) {
-      VariableInstanceEntity variableEntity = variableSerializer.read(serializedVariable);
-      variables.put(variableEntity.getId(), variableEntity);
-    }
-    loadedProcessInstance.put(VARIABLES, variables);
 
     reconstructEntityTree(loadedProcessInstance);
 
@@ -89,16 +85,72 @@ public class ProcessInstanceLoader implements CompositeEntityLoader {
     return loadedProcessInstance;
   }
 
+  /**
+   * Returns the serialized process instance row, from the process instance cache if it is enabled and holds the row
+   * at the current version.
+   */
+  protected CachedProcessInstance getSerializedProcessInstance(CassandraPersistenceSession session, String id) {
+    Session s = session.getSession();
+    ProcessInstanceCache cache = CassandraPersistenceSession.getProcessInstanceCache();
+    if(cache != null) {
+      CachedProcessInstance cached = cache.get(id);
+      if(cached != null) {
+        //the row may have been changed or deleted by another node
+        Row versionRow = s.execute(selectVersionStatement.bind(id).setIdempotent(true)).one();
+        if(versionRow == null) {
+          cache.invalidate(id);
+          return null;
+        }
+        if(!versionRow.isNull("version") && versionRow.getInt("version") == cached.getVersion()) {
+          return cached;
+        }
+        cache.invalidate(id);
+      }
+    }
+
+    Iterator<Row> rows = s.execute(selectStatement.bind(id).setIdempotent(true)).iterator();
+    if(!rows.hasNext()) {
+      return null;
+    }
+    Row row = rows.next();
+    int version = row.getInt("version");
+    String businessKey = row.getString("business_key");
+
+    Map<String, Map<String, UDTValue>> embedded = new HashMap<String, Map<String, UDTValue>>();
+    embedded.put(EXECUTIONS, row.getMap(EXECUTIONS, String.class, UDTValue.class));
+    embedded.put(EVENT_SUBSCRIPTIONS, row.getMap(EVENT_SUBSCRIPTIONS, String.class, UDTValue.class));
+    if(clusteredVariables) {
+      // one row per variable, the process instance columns are static and repeated in every row
+      Map<String, UDTValue> variables = new HashMap<String, UDTValue>();
+      while(row != null) {
+        if(!row.isNull("var_id")) {
+          variables.put(row.getString("var_id"), row.getUDTValue("variable"));
+        }
+        row = rows.hasNext() ? rows.next() : null;
+      }
+      embedded.put(VARIABLES, variables);
+    }
+    else {
+      embedded.put(VARIABLES, row.getMap(VARIABLES, String.class, UDTValue.class));
+    }
+    CachedProcessInstance serializedProcessInstance = new CachedProcessInstance(version, businessKey, embedded);
+
+    if(cache != null) {
+      cache.put(id, serializedProcessInstance);
+    }
+    return serializedProcessInstance;
+  }
+
+  /**
+   * Restores the execution tree only. Event subscriptions and variables stay uninitialized in the executions,
+   * the engine loads them on first access through selectEventSubscriptionsByExecution and selectVariablesByExecutionId.
+   */
   @SuppressWarnings("unchecked")
   protected void reconstructEntityTree(LoadedCompositeEntity compositeEntity) {
     ExecutionEntity processInstance = (ExecutionEntity) compositeEntity.getPrimaryEntity();
-    Map<String, ExecutionEntity> executions = (Map<String, ExecutionEntity>) compositeEntity.getEmbeddedEntities().get(EXECUTIONS);
-    Map<String, EventSubscriptionEntity> eventSubscriptions = (Map<String, EventSubscriptionEntity>) compositeEntity.getEmbeddedEntities().get(EVENT_SUBSCRIPTIONS);
-    Map<String, VariableInstanceEntity> variables = (Map<String, VariableInstanceEntity>) compositeEntity.getEmbeddedEntities().get(VARIABLES);
+    Map<String, ExecutionEntity> executions = (Map<String, ExecutionEntity>) compositeEntity.get(EXECUTIONS);
 
-    processInstance.restoreProcessInstance(executions.values(),
-        eventSubscriptions.values(),
-        variables.values());
+    processInstance.restoreProcessInstance(executions.values(), null, null);
   }
 
 }
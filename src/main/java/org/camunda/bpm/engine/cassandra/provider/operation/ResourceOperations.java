@@ -4,11 +4,12 @@ import static org.camunda.bpm.engine.cassandra.provider.table.ResourceTableHandl
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.impl.persistence.entity.ResourceEntity;
 
 import com.datastax.driver.core.BoundStatement;
-import com.datastax.driver.core.Session;
+import com.datastax.driver.core.PreparedStatement;
 
 public class ResourceOperations extends AbstractEntityOperationHandler<ResourceEntity> {
 
@@ -19,17 +20,18 @@ public class ResourceOperations extends AbstractEntityOperationHandler<ResourceE
   public ResourceOperations(CassandraPersistenceSession cassandraPersistenceSession) {
   }
 
+  private static PreparedStatement insertStatement=null;
+
   public static void prepare(CassandraProcessEngineConfiguration config) {
-		// TODO - prepare all statements
+    insertStatement = PreparedStatementRegistry.prepare(config, INSERT);
+    prepareSelectById(config, TABLE_NAME);
   }
 
   public void insert(CassandraPersistenceSession session, ResourceEntity entity) {
 
-    Session s = session.getSession();
-
     CassandraSerializer<ResourceEntity> serializer = session.getSerializer(ResourceEntity.class);
    
-    BoundStatement statement = s.prepare(INSERT).bind();
+    BoundStatement statement = insertStatement.bind();
     serializer.write(statement, entity); 
     session.addStatement(statement);
   }
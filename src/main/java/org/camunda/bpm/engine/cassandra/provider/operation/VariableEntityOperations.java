@@ -1,13 +1,11 @@
 package org.camunda.bpm.engine.cassandra.provider.operation;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.put;
-
 import java.util.HashMap;
 import java.util.Map;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ExecutionIdByVariableValueIndex;
 import org.camunda.bpm.engine.cassandra.provider.indexes.IndexHandler;
 import org.camunda.bpm.engine.cassandra.provider.indexes.ProcessIdByProcessVariableValueIndex;
@@ -19,12 +17,24 @@ import org.camunda.bpm.engine.impl.db.DbEntity;
 import org.camunda.bpm.engine.impl.db.EntityLoadListener;
 import org.camunda.bpm.engine.impl.persistence.entity.VariableInstanceEntity;
 
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.UDTValue;
-import com.datastax.driver.core.querybuilder.QueryBuilder;
 
 public class VariableEntityOperations implements EntityOperationHandler<VariableInstanceEntity>, EntityLoadListener {
+  protected final static String UPDATE = "UPDATE "+ProcessInstanceTableHandler.TABLE_NAME+" SET variables[:var_id] = :value WHERE id = :id;";
+
+  protected final static String DELETE = "DELETE variables[:var_id] FROM "+ProcessInstanceTableHandler.TABLE_NAME+" WHERE id = :id;";
+
+  //statements for the layout with variables as clustering rows, same bind variables as above
+  protected final static String UPDATE_CLUSTERED = "UPDATE "+ProcessInstanceTableHandler.TABLE_NAME+" SET variable = :value WHERE id = :id AND var_id = :var_id;";
+
+  protected final static String DELETE_CLUSTERED = "DELETE FROM "+ProcessInstanceTableHandler.TABLE_NAME+" WHERE id = :id AND var_id = :var_id;";
+
+  private static PreparedStatement updateStatement=null;
+  private static PreparedStatement deleteStatement=null;
+
   protected static Map<Class<?>, IndexHandler<VariableInstanceEntity>> indexHandlers = new HashMap<Class<?>, IndexHandler<VariableInstanceEntity>>();
 
   private Map<String, VariableInstanceEntity> varValuesCache=new HashMap<String,VariableInstanceEntity>();
@@ -41,7 +51,14 @@ public class VariableEntityOperations implements EntityOperationHandler<Variable
   }
 
   public static void prepare(CassandraProcessEngineConfiguration config) {
-		// TODO - prepare all statements
+    if(config.isClusteredVariables()) {
+      updateStatement = PreparedStatementRegistry.prepare(config, UPDATE_CLUSTERED);
+      deleteStatement = PreparedStatementRegistry.prepare(config, DELETE_CLUSTERED);
+    }
+    else {
+      updateStatement = PreparedStatementRegistry.prepare(config, UPDATE);
+      deleteStatement = PreparedStatementRegistry.prepare(config, DELETE);
+    }
   }
 
   public void insert(CassandraPersistenceSession session, VariableInstanceEntity entity) {
@@ -53,8 +70,10 @@ public class VariableEntityOperations implements EntityOperationHandler<Variable
   }
 
   public void delete(CassandraPersistenceSession session, VariableInstanceEntity entity) {
-    session.addStatement(QueryBuilder.delete().mapElt("variables", entity.getId())
-      .from(ProcessInstanceTableHandler.TABLE_NAME).where(eq("id", entity.getProcessInstanceId())), entity.getProcessInstanceId());
+    session.addStatement(deleteStatement.bind()
+        .setString("var_id", entity.getId())
+        .setString("id", entity.getProcessInstanceId()), entity.getProcessInstanceId());
+    session.addProcessInstanceChange(entity.getProcessInstanceId(), ProcessInstanceLoader.VARIABLES, entity.getId(), null);
     
     for(IndexHandler<VariableInstanceEntity> index:indexHandlers.values()){
       session.addIndexStatement(index.getDeleteStatement(session,getCachedEntity(entity)), entity.getProcessInstanceId());  
@@ -82,10 +101,12 @@ public class VariableEntityOperations implements EntityOperationHandler<Variable
 
     UDTValue value = typeHandler.createValue(s);
     serializer.write(value, entity);
+    session.addProcessInstanceChange(entity.getProcessInstanceId(), ProcessInstanceLoader.VARIABLES, entity.getId(), value);
 
-    return QueryBuilder.update(ProcessInstanceTableHandler.TABLE_NAME)
-      .with(put("variables", entity.getId(), value))
-      .where(eq("id", entity.getProcessInstanceId()));
+    return updateStatement.bind()
+        .setString("var_id", entity.getId())
+        .setUDTValue("value", value)
+        .setString("id", entity.getProcessInstanceId());
   }
 
   @Override
@@ -98,7 +119,7 @@ public class VariableEntityOperations implements EntityOperationHandler<Variable
     if(loadedComposite==null){
       return null;
     }
-    return (VariableInstanceEntity) loadedComposite.get(ProcessInstanceLoader.VARIABLES).get(id);
+    return (VariableInstanceEntity) loadedComposite.get(ProcessInstanceLoader.VARIABLES, id);
   }
 
   public static IndexHandler<VariableInstanceEntity> getIndexHandler(Class<?> type){
@@ -0,0 +1,38 @@
+package org.camunda.bpm.engine.cassandra.provider.query;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.operation.LoadedCompositeEntity;
+import org.camunda.bpm.engine.cassandra.provider.operation.ProcessInstanceLoader;
+import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.db.ListQueryParameterObject;
+
+/**
+ * Lazy loading of the event subscriptions or variables of an execution.
+ * 
+ * Executions are only ever loaded as part of their process instance, so the process instance composite 
+ * is already in the session. Only the entries that belong to the execution are deserialized.
+ */
+public class SelectEmbeddedEntitiesByExecutionId<T extends DbEntity> implements SelectListQueryHandler<T, ListQueryParameterObject> {
+
+  protected String embeddedName;
+
+  public SelectEmbeddedEntitiesByExecutionId(String embeddedName) {
+    this.embeddedName = embeddedName;
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<T> executeQuery(CassandraPersistenceSession session, ListQueryParameterObject parameter) {
+    String executionId = (String) parameter.getParameter();
+
+    LoadedCompositeEntity processInstance = session.findLoadedComposite(ProcessInstanceLoader.NAME, ProcessInstanceLoader.EXECUTIONS, executionId);
+    if(processInstance == null) {
+      //new execution, nothing persisted yet
+      return Collections.emptyList();
+    }
+    return (List<T>) processInstance.find(embeddedName, "execution_id", executionId);
+  }
+
+}
@@ -13,7 +13,6 @@
 
 package org.camunda.bpm.engine.cassandra.provider.query;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -48,15 +47,6 @@ public class SelectExclusiveJobsToExecute implements SelectListQueryHandler<JobE
     List<String> keys = lockedIndex.getValues(indexParams, session, (String)null);
     keys.addAll(index.getValues(indexParams, session, (String)null));
     
-    List<JobEntity> result = new ArrayList<JobEntity>();
-    for(String keyStr : keys){
-      //JobEntityKey key = new JobEntityKey();
-      //key.fromJsonString(keyStr);
-      JobEntity job = session.selectById(JobEntity.class, keyStr);
-      if(job!=null){
-        result.add(job);
-      }
-    }
-    return result;
+    return session.selectByIds(JobEntity.class, keys);
   }
 }
@@ -13,7 +13,6 @@
 
 package org.camunda.bpm.engine.cassandra.provider.query;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -42,16 +41,6 @@ public class SelectJobsByConfiguration implements SelectListQueryHandler<JobEnti
     List<String> keys = index.getValues(null,session, type, config);
     keys.addAll(index.getValues(null,session, type, followUpConfig));
     
-    List<JobEntity> result = new ArrayList<JobEntity>();
-    for(String keyStr : keys){
- //     JobEntityKey key = new JobEntityKey();
- //     key.fromJsonString(keyStr);
- //     JobEntity job = JobOperations.getJobByKey(session, key);
-      JobEntity job = session.selectById(JobEntity.class, keyStr);
-      if(job!=null){
-        result.add(job);
-      }
-    }
-    return result;
+    return session.selectByIds(JobEntity.class, keys);
   }
 }
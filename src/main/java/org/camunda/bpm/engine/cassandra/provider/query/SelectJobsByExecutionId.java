@@ -13,7 +13,6 @@
 
 package org.camunda.bpm.engine.cassandra.provider.query;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
@@ -34,14 +33,6 @@ public class SelectJobsByExecutionId implements SelectListQueryHandler<JobEntity
     
     IndexHandler<JobEntity> index = JobOperations.getIndexHandler(JobsByExecutionIdIndex.class);
     List<String> keys = index.getValues(null,session, executionId);
-    
-    List<JobEntity> result = new ArrayList<JobEntity>();
-    for(String key : keys){
-      JobEntity job = session.selectById(JobEntity.class, key);
-      if(job!=null){
-        result.add(job);
-      }
-    }
-    return result;
+    return session.selectByIds(JobEntity.class, keys);
   }
 }
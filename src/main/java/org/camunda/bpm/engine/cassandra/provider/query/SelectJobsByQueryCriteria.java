@@ -0,0 +1,118 @@
+package org.camunda.bpm.engine.cassandra.provider.query;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.indexes.InactiveJobsByDefinitionIndex;
+import org.camunda.bpm.engine.cassandra.provider.indexes.JobsByExecutionIdIndex;
+import org.camunda.bpm.engine.cassandra.provider.operation.JobOperations;
+import org.camunda.bpm.engine.impl.JobQueryImpl;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.SuspensionState;
+
+/**
+ * Job queries by job id, by execution id or, for failed jobs without retries and suspended jobs,
+ * by job definition id through the {@link InactiveJobsByDefinitionIndex}.
+ * The candidates are filtered by the remaining supported criteria, other queries return no jobs.
+ */
+public class SelectJobsByQueryCriteria implements SelectListQueryHandler<JobEntity, JobQueryImpl> {
+
+  private final static Logger LOG = Logger.getLogger(SelectJobsByQueryCriteria.class.getName());
+
+  //the query has no getters for these
+  private static final Field ID = getField("id");
+  private static final Field JOB_DEFINITION_ID = getField("jobDefinitionId");
+  private static final Field PROCESS_DEFINITION_ID = getField("processDefinitionId");
+  private static final Field NO_RETRIES_LEFT = getField("noRetriesLeft");
+  private static final Field SUSPENSION_STATE = getField("suspensionState");
+
+  public List<JobEntity> executeQuery(CassandraPersistenceSession session, JobQueryImpl query) {
+    String id = (String) get(ID, query);
+    String jobDefinitionId = (String) get(JOB_DEFINITION_ID, query);
+    boolean noRetriesLeft = (Boolean) get(NO_RETRIES_LEFT, query);
+    SuspensionState suspensionState = (SuspensionState) get(SUSPENSION_STATE, query);
+
+    List<JobEntity> candidates;
+    if(id != null) {
+      JobEntity job = session.selectById(JobEntity.class, id);
+      candidates = job == null ? Collections.<JobEntity>emptyList() : Collections.singletonList(job);
+    }
+    else if(query.getExecutionId() != null) {
+      candidates = session.selectByIds(JobEntity.class, JobOperations.getIndexHandler(JobsByExecutionIdIndex.class)
+          .getValues(null, session, query.getExecutionId()));
+    }
+    else if(jobDefinitionId != null && (noRetriesLeft || SuspensionState.SUSPENDED.equals(suspensionState))) {
+      String state = noRetriesLeft ? InactiveJobsByDefinitionIndex.FAILED : InactiveJobsByDefinitionIndex.SUSPENDED;
+      candidates = session.selectByIds(JobEntity.class, JobOperations.getIndexHandler(InactiveJobsByDefinitionIndex.class)
+          .getValues(null, session, state, jobDefinitionId));
+    }
+    else {
+      LOG.warning("Unsupported job query, must provide job id, execution id or job definition id of failed or suspended jobs");
+      return Collections.emptyList();
+    }
+
+    List<JobEntity> result = new ArrayList<JobEntity>();
+    for(JobEntity job : candidates) {
+      if(matches(job, query, jobDefinitionId, noRetriesLeft, suspensionState)) {
+        result.add(job);
+      }
+    }
+    return result;
+  }
+
+  protected boolean matches(JobEntity job, JobQueryImpl query, String jobDefinitionId, boolean noRetriesLeft, SuspensionState suspensionState) {
+    if(jobDefinitionId != null && !jobDefinitionId.equals(job.getJobDefinitionId())) {
+      return false;
+    }
+    String processDefinitionId = (String) get(PROCESS_DEFINITION_ID, query);
+    if(processDefinitionId != null && !processDefinitionId.equals(job.getProcessDefinitionId())) {
+      return false;
+    }
+    if(query.getProcessInstanceId() != null && !query.getProcessInstanceId().equals(job.getProcessInstanceId())) {
+      return false;
+    }
+    if(query.getExecutionId() != null && !query.getExecutionId().equals(job.getExecutionId())) {
+      return false;
+    }
+    if(noRetriesLeft && job.getRetries() > 0) {
+      return false;
+    }
+    if(query.getRetriesLeft() && job.getRetries() <= 0) {
+      return false;
+    }
+    if(suspensionState != null && suspensionState.getStateCode() != job.getSuspensionState()) {
+      return false;
+    }
+    if(query.isWithException() && job.getExceptionMessage() == null) {
+      return false;
+    }
+    if(query.getExceptionMessage() != null && !query.getExceptionMessage().equals(job.getExceptionMessage())) {
+      return false;
+    }
+    return true;
+  }
+
+  private static Object get(Field field, JobQueryImpl query) {
+    try {
+      return field.get(query);
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Field getField(String name) {
+    try {
+      Field field = JobQueryImpl.class.getDeclaredField(name);
+      field.setAccessible(true);
+      return field;
+    }
+    catch (NoSuchFieldException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -12,19 +12,19 @@
  */
 package org.camunda.bpm.engine.cassandra.provider.query;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
-import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
-
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.ConsistencyPolicy;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessDefinitionTableHandler;
 import org.camunda.bpm.engine.impl.db.ListQueryParameterObject;
 import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
 
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 
@@ -34,14 +34,22 @@ import com.datastax.driver.core.Session;
  */
 public class SelectLatestProcessDefinitionByKeyQueryHandler implements SelectListQueryHandler<ProcessDefinitionEntity, ListQueryParameterObject> {
 
+  protected final static String SELECT_LATEST_ID = "SELECT id FROM "+ProcessDefinitionTableHandler.TABLE_NAME_IDX_VERSION+" WHERE key = ? LIMIT 1;";
+
+  protected final static String SELECT = "SELECT * FROM "+ProcessDefinitionTableHandler.TABLE_NAME+" WHERE id = ?;";
+
+  private static PreparedStatement selectLatestIdStatement=null;
+  private static PreparedStatement selectStatement=null;
+
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    selectLatestIdStatement = PreparedStatementRegistry.prepare(config, SELECT_LATEST_ID);
+    selectStatement = PreparedStatementRegistry.prepare(config, SELECT);
+  }
+
   public List<ProcessDefinitionEntity> executeQuery(CassandraPersistenceSession session, ListQueryParameterObject parameter) {
     Session s = session.getSession();
 
-    Row row = s.execute(select("id")
-      .from(ProcessDefinitionTableHandler.TABLE_NAME_IDX_VERSION)
-      .where(eq("key", parameter.getParameter()))
-      .limit(1))
-      .one();
+    Row row = s.execute(ConsistencyPolicy.forQuery(selectLatestIdStatement.bind(parameter.getParameter()))).one();
 
     if(row == null) {
       return null;
@@ -49,11 +57,7 @@ public class SelectLatestProcessDefinitionByKeyQueryHandler implements SelectLis
 
     String id = row.getString("id");
 
-    Row result = s.execute(select()
-        .all()
-        .from(ProcessDefinitionTableHandler.TABLE_NAME)
-        .where(eq("id", id)))
-        .one();
+    Row result = s.execute(ConsistencyPolicy.forQuery(selectStatement.bind(id))).one();
 
     if(result == null) {
       return null;
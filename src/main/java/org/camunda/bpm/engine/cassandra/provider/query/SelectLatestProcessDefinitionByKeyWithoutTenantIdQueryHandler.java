@@ -1,29 +1,35 @@
 package org.camunda.bpm.engine.cassandra.provider.query;
 
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.ConsistencyPolicy;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessDefinitionTableHandler;
 import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.*;
-
 import java.util.Map;
 
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 
 public class SelectLatestProcessDefinitionByKeyWithoutTenantIdQueryHandler implements SingleResultQueryHandler<ProcessDefinitionEntity> {
 
+  private static PreparedStatement selectLatestIdStatement=null;
+  private static PreparedStatement selectStatement=null;
+
+  public static void prepare(CassandraProcessEngineConfiguration config) {
+    selectLatestIdStatement = PreparedStatementRegistry.prepare(config, SelectLatestProcessDefinitionByKeyQueryHandler.SELECT_LATEST_ID);
+    selectStatement = PreparedStatementRegistry.prepare(config, SelectLatestProcessDefinitionByKeyQueryHandler.SELECT);
+  }
+
   public ProcessDefinitionEntity executeQuery(CassandraPersistenceSession session, Object parameter) {
     Session s = session.getSession();
 
     Map<String, String> parameterMap = (Map<String, String>) parameter;
 
-    Row row = s.execute(select("id")
-      .from(ProcessDefinitionTableHandler.TABLE_NAME_IDX_VERSION)
-      .where(eq("key", parameterMap.get("processDefinitionKey")))
-      .limit(1))
-      .one();
+    Row row = s.execute(ConsistencyPolicy.forQuery(selectLatestIdStatement.bind(parameterMap.get("processDefinitionKey")))).one();
 
     if(row == null) {
       return null;
@@ -31,11 +37,7 @@ public class SelectLatestProcessDefinitionByKeyWithoutTenantIdQueryHandler imple
 
     String id = row.getString("id");
 
-    Row result = s.execute(select()
-        .all()
-        .from(ProcessDefinitionTableHandler.TABLE_NAME)
-        .where(eq("id", id)))
-        .one();
+    Row result = s.execute(ConsistencyPolicy.forQuery(selectStatement.bind(id))).one();
 
     if(result == null) {
       return null;
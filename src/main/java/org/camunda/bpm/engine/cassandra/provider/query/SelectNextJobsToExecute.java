@@ -16,19 +16,31 @@ import static org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler.JO
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.logging.Logger;
 
 import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.ConsistencyPolicy;
+import org.camunda.bpm.engine.cassandra.provider.JobBucketLeases;
+import org.camunda.bpm.engine.cassandra.provider.JobShardRegistry;
+import org.camunda.bpm.engine.cassandra.provider.PreparedStatementRegistry;
 import org.camunda.bpm.engine.cassandra.provider.indexes.IndexUtils;
+import org.camunda.bpm.engine.cassandra.provider.operation.JobOperations;
+import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.impl.db.ListQueryParameterObject;
 import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
 
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 
@@ -38,35 +50,103 @@ import com.datastax.driver.core.Session;
  * @created 15/09/2015
  */
 public class SelectNextJobsToExecute implements SelectListQueryHandler<JobEntity, ListQueryParameterObject> {
-  private final static String SELECT = "SELECT id FROM "+JOB_INDEX_TABLE+" WHERE "
+  private final static Logger LOG = Logger.getLogger(SelectNextJobsToExecute.class.getName());
+
+  private final static String SELECT = "SELECT shard_id, is_locked, bucket, band, sort_time, id FROM "+JOB_INDEX_TABLE+" WHERE "
       + "shard_id = ? AND "
       + "is_locked = ? AND "
+      + "bucket = ? AND "
+      + "band = ? AND "
+      + "sort_time < ? "
+      + "LIMIT ?;";
+
+  //with the denormalized index the job is read from the index row
+  private final static String SELECT_DENORMALIZED = "SELECT * FROM "+JOB_INDEX_TABLE+" WHERE "
+      + "shard_id = ? AND "
+      + "is_locked = ? AND "
+      + "bucket = ? AND "
+      + "band = ? AND "
       + "sort_time < ? "
       + "LIMIT ?;";
 
   private final static String SELECT_ACTIVE = "SELECT id FROM "+JOB_INDEX_TABLE+" WHERE "
       + "shard_id = ? AND "
-      + "is_locked = ? "
+      + "is_locked = ? AND "
+      + "bucket = ? "
       + "LIMIT ?;";
 
+  //rows of the buckets and bands of a shard are merged in the due date order
+  private final static Comparator<Row> INDEX_ORDER = new Comparator<Row>() {
+    public int compare(Row row1, Row row2) {
+      int result = row1.getDate("sort_time").compareTo(row2.getDate("sort_time"));
+      return result != 0 ? result : row1.getString("id").compareTo(row2.getString("id"));
+    }
+  };
+
   private static PreparedStatement selectActiveStatement=null;
   private static PreparedStatement selectStatement=null;
 
   protected static int shardSizeMillis; //size of the job shard
-  protected static int shardInitNumber; //how far to go back to find active shards on start-up 
+  protected static int shardInitNumber; //how far to go back to find active shards if the shard registry is empty
+  protected static int buckets; //number of partitions of each shard
+  protected static int[][] bandPasses; //priority bands queried together, highest band first
+  protected static JobBucketLeases bucketLeases = null; //buckets owned by this node, null if every node scans all buckets
   //protected static int maxPriority; //maximum possible priority
   
   protected static List<Long> activeShards = Collections.synchronizedList(new LinkedList<Long>());
   protected static List<Long> activeLockedShards = Collections.synchronizedList(new LinkedList<Long>());
   
   public static void prepare(CassandraProcessEngineConfiguration config) {
-    selectActiveStatement = config.getSession().prepare(SELECT_ACTIVE);
-    selectStatement = config.getSession().prepare(SELECT);
+    selectActiveStatement = PreparedStatementRegistry.prepare(config, SELECT_ACTIVE);
+    selectStatement = PreparedStatementRegistry.prepare(config, config.isDenormalizedJobIndex() ? SELECT_DENORMALIZED : SELECT);
     
     shardSizeMillis = config.getJobShardSizeHours()*3600*1000;
     shardInitNumber=config.getJobShardInitNumber();
+    buckets=config.getJobIndexBuckets();
+    bandPasses=getBandPasses(config.getJobPriorityBands(), config.isJobExecutorAcquireByPriority());
+
+    close();
+    if(config.isJobBucketLeases()){
+      String nodeId = config.getJobExecutor() != null ? config.getJobExecutor().getLockOwner() : UUID.randomUUID().toString();
+      bucketLeases = new JobBucketLeases(config, nodeId);
+    }
     //maxPriority=config.getMaxPriority();
-    
+
+    activeShards.clear();
+    activeLockedShards.clear();
+    Session s = config.getSession();
+    if(JobShardRegistry.refreshIfDue(s)) {
+      loadShards();
+    }
+    if(activeShards.isEmpty() && activeLockedShards.isEmpty()) {
+      //empty registry, e.g. after an upgrade - find the active shards once and register them
+      probeShards(s);
+    }
+  }
+
+  private static void loadShards() {
+    long prevShard = IndexUtils.calculateShard(System.currentTimeMillis(), shardSizeMillis) - shardSizeMillis;
+    mergeShards(activeShards, JobShardRegistry.getShardList(false), prevShard);
+    mergeShards(activeLockedShards, JobShardRegistry.getShardList(true), prevShard);
+  }
+
+  /**
+   * Replaces the active shards with the registered ones, the last 2 shards are kept as they are always queried.
+   */
+  private static void mergeShards(List<Long> shards, List<Long> registered, long prevShard) {
+    synchronized(shards){
+      TreeSet<Long> merged = new TreeSet<Long>(registered);
+      for(Long shard:shards){
+        if(shard >= prevShard){
+          merged.add(shard);
+        }
+      }
+      shards.clear();
+      shards.addAll(merged);
+    }
+  }
+
+  private static void probeShards(Session s) {
     long currentShard = IndexUtils.calculateShard(System.currentTimeMillis(), shardSizeMillis); 
     //NOTE - locked indexes are sorted and sharded by lock expiry date and
     //unlocked indexes are sorted and sharded by the job due date
@@ -78,11 +158,13 @@ public class SelectNextJobsToExecute implements SelectListQueryHandler<JobEntity
      //   }
      // }
       
-      if(checkActive(currentShard, false, config.getSession())){
+      if(checkActive(currentShard, false, s)){
         activeShards.add(0, currentShard); 
+        JobShardRegistry.register(s, currentShard, false);
       }
-      if(checkActive(currentShard, true, config.getSession())){
+      if(checkActive(currentShard, true, s)){
         activeLockedShards.add(0, currentShard); 
+        JobShardRegistry.register(s, currentShard, true);
       }
     }
   }
@@ -95,16 +177,60 @@ public class SelectNextJobsToExecute implements SelectListQueryHandler<JobEntity
     Date now=(Date) params.get("now");
     int maxResults=query.getMaxResults();
     List<JobEntity> result=new ArrayList<JobEntity>();
+    if(JobShardRegistry.refreshIfDue(session.getSession())){
+      loadShards();
+    }
+    int[] scanBuckets = getScanBuckets();
+    if(scanBuckets.length==0){
+      return result;
+    }
     //first look for all locked jobs where the lock has expired
-    queryShards(activeLockedShards, result, now, maxResults, session, currentShard, true);
+    queryShards(activeLockedShards, result, now, maxResults, session, currentShard, true, scanBuckets);
     //now look for remaining jobs by due date
     if(result.size()<maxResults){
-      queryShards(activeShards, result, now, maxResults, session, currentShard, false);      
+      queryShards(activeShards, result, now, maxResults, session, currentShard, false, scanBuckets);      
     }
     return result;
   }
 
-  private void queryShards(List<Long> shards, List<JobEntity> result, Date now, int maxResults, CassandraPersistenceSession session, long currentShard, boolean locked ){
+  private static int[] getScanBuckets(){
+    if(bucketLeases != null){
+      return bucketLeases.getOwnedBuckets();
+    }
+    int[] all = new int[buckets];
+    for(int bucket=0; bucket<buckets; bucket++){
+      all[bucket] = bucket;
+    }
+    return all;
+  }
+
+  /**
+   * With acquisition by priority every band is drained before the next lower one, otherwise all bands
+   * are read together and merged by due date.
+   */
+  private static int[][] getBandPasses(int bands, boolean byPriority){
+    if(byPriority){
+      int[][] passes = new int[bands][];
+      for(int i=0; i<bands; i++){
+        passes[i] = new int[]{bands-1-i};
+      }
+      return passes;
+    }
+    int[] all = new int[bands];
+    for(int band=0; band<bands; band++){
+      all[band] = band;
+    }
+    return new int[][]{all};
+  }
+
+  public static void close(){
+    if(bucketLeases != null){
+      bucketLeases.release();
+      bucketLeases = null;
+    }
+  }
+
+  private void queryShards(List<Long> shards, List<JobEntity> result, Date now, int maxResults, CassandraPersistenceSession session, long currentShard, boolean locked, int[] scanBuckets){
     List<Long> localShards = new ArrayList<Long>();
     synchronized(shards){
       //make sure the current slice is always marked as active
@@ -117,37 +243,136 @@ public class SelectNextJobsToExecute implements SelectListQueryHandler<JobEntity
     
     long prevShard = IndexUtils.calculateShard(currentShard-1, shardSizeMillis);
     
-    TOPLOOP: for(Long shard: localShards){
-      BoundStatement statement = selectStatement.bind();
-      statement.setDate("shard_id", new Date(shard));
-      statement.setBool("is_locked", locked);
-      statement.setDate(2, now); //date in the past
-      statement.setInt(3, maxResults); //limit
-      List<Row> rows = session.getSession().execute(statement).all();
-      for(Row row:rows){
-        JobEntity job= session.selectById(JobEntity.class, row.getString("id"));
-        if(job!=null){
-          result.add(job);
+    //number of band passes in which each shard came back empty
+    Map<Long, Integer> emptyPasses = new HashMap<Long, Integer>();
+    TOPLOOP: for(int[] scanBands: bandPasses){
+      for(Long shard: localShards){
+        List<Row> rows = queryBuckets(session.getSession(), shard, locked, now, maxResults-result.size(), scanBuckets, scanBands);
+        if(rows.isEmpty()){
+          Integer empty = emptyPasses.get(shard);
+          emptyPasses.put(shard, empty == null ? 1 : empty + 1);
+          continue;
+        }
+        List<JobEntity> jobs;
+        if(JobOperations.isDenormalizedIndex()){
+          jobs = readJobs(session, rows);
         }
-        
-        if(result.size()>=maxResults){
-          break TOPLOOP;
+        else{
+          List<String> ids = new ArrayList<String>(rows.size());
+          for(Row row:rows){
+            ids.add(row.getString("id"));
+          }
+          jobs = session.selectByIds(JobEntity.class, ids);
+          if(jobs.size() < ids.size()){
+            removeIncompleteJobs(session, rows);
+          }
+        }
+        for(JobEntity job:jobs){
+          result.add(job);
+          if(result.size()>=maxResults){
+            break TOPLOOP;
+          }
         }
       }
-      if(rows.isEmpty() && shard < prevShard){ //keep the last 2 shards active
+    }
+
+    for(Map.Entry<Long, Integer> entry: emptyPasses.entrySet()){
+      Long shard = entry.getKey();
+      if(entry.getValue() == bandPasses.length && shard < prevShard){ //keep the last 2 shards active
         if(!checkActive(shard, locked, session.getSession())){
           shards.remove(shard);
+          JobShardRegistry.remove(session.getSession(), shard, locked);
+          //a job written to the shard meanwhile may have registered it just before the removal
+          if(checkActive(shard, locked, session.getSession())){
+            JobShardRegistry.register(session.getSession(), shard, locked);
+            mergeShards(shards, Collections.singletonList(shard), Long.MIN_VALUE);
+          }
         }
       }
     }
   }
 
+  private List<JobEntity> readJobs(CassandraPersistenceSession session, List<Row> rows){
+    CassandraSerializer<JobEntity> serializer = CassandraPersistenceSession.getSerializer(JobEntity.class);
+    List<JobEntity> jobs = new ArrayList<JobEntity>(rows.size());
+    for(Row row:rows){
+      if(row.isNull("type")){
+        //partial row left by an update racing with a move of the job to another key or with its deletion
+        removeIndexRow(session, row);
+        continue;
+      }
+      JobEntity job = serializer.read(row);
+      session.fireEntityLoaded(job);
+      jobs.add(job);
+    }
+    return jobs;
+  }
+
+  /**
+   * Removes the index rows of jobs that were only found as incomplete rows of the job table, see JobOperations.
+   */
+  private void removeIncompleteJobs(CassandraPersistenceSession session, List<Row> rows){
+    JobOperations jobOperations = (JobOperations) session.getOperationsHandler(JobEntity.class);
+    for(Row row:rows){
+      if(jobOperations.isIncomplete(row.getString("id"))){
+        removeIndexRow(session, row);
+      }
+    }
+  }
+
+  /**
+   * The delete is committed with the command, a failure fails the command like any other write.
+   */
+  private void removeIndexRow(CassandraPersistenceSession session, Row row){
+    LOG.fine("Removing incomplete job index row for job "+row.getString("id"));
+    session.addStatement(JobOperations.createDeleteIndexStatement(row));
+  }
+
+  /**
+   * Reads the given buckets and bands of a shard concurrently, returns at most limit rows in the due date order.
+   */
+  private static List<Row> queryBuckets(Session session, long shard, boolean locked, Date now, int limit, int[] scanBuckets, int[] scanBands){
+    List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(scanBuckets.length*scanBands.length);
+    for(int bucket:scanBuckets){
+      for(int band:scanBands){
+        BoundStatement statement = selectStatement.bind();
+        statement.setDate("shard_id", new Date(shard));
+        statement.setBool("is_locked", locked);
+        statement.setInt("bucket", bucket);
+        statement.setInt("band", band);
+        statement.setDate(4, now); //date in the past
+        statement.setInt(5, limit); //limit
+        statement.setIdempotent(true);
+        futures.add(session.executeAsync(ConsistencyPolicy.forJobAcquisition(statement)));
+      }
+    }
+    List<Row> rows = new ArrayList<Row>();
+    for(ResultSetFuture future:futures){
+      rows.addAll(future.getUninterruptibly().all());
+    }
+    if(futures.size() > 1){
+      Collections.sort(rows, INDEX_ORDER);
+      if(rows.size() > limit){
+        rows = rows.subList(0, limit);
+      }
+    }
+    return rows;
+  }
+
   private static boolean checkActive(long shard, boolean locked, Session session){
-    BoundStatement statement = selectActiveStatement.bind();
-    statement.setDate("shard_id", new Date(shard));
-    statement.setBool("is_locked", locked);
-    statement.setInt(2, 1); //limit, just get one
-    Row row = session.execute(statement).one();
-    return row!=null;
+    List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(buckets);
+    for(int bucket=0; bucket<buckets; bucket++){
+      BoundStatement statement = selectActiveStatement.bind();
+      statement.setDate("shard_id", new Date(shard));
+      statement.setBool("is_locked", locked);
+      statement.setInt("bucket", bucket);
+      statement.setInt(3, 1); //limit, just get one
+      futures.add(session.executeAsync(ConsistencyPolicy.forJobAcquisition(statement)));
+    }
+    boolean active = false;
+    for(ResultSetFuture future:futures){
+      active |= future.getUninterruptibly().one()!=null;
+    }
+    return active;
   }
 }
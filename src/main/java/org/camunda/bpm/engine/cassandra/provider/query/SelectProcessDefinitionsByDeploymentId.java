@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.ConsistencyPolicy;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.ProcessDefinitionTableHandler;
 import org.camunda.bpm.engine.impl.db.ListQueryParameterObject;
@@ -36,9 +37,9 @@ public class SelectProcessDefinitionsByDeploymentId implements SelectListQueryHa
   public List<ProcessDefinitionEntity> executeQuery(CassandraPersistenceSession session, ListQueryParameterObject parameter) {
     Session s = session.getSession();
 
-    List<Row> rows = s.execute(select().all()
+    List<Row> rows = s.execute(ConsistencyPolicy.forQuery(select().all()
       .from(ProcessDefinitionTableHandler.TABLE_NAME)
-      .where(eq("deployment_id", parameter.getParameter())))
+      .where(eq("deployment_id", parameter.getParameter()))))
       .all();
 
     CassandraSerializer<ProcessDefinitionEntity> serializer = session.getSerializer(ProcessDefinitionEntity.class);
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.camunda.bpm.engine.cassandra.provider.CassandraPersistenceSession;
+import org.camunda.bpm.engine.cassandra.provider.ConsistencyPolicy;
 import org.camunda.bpm.engine.cassandra.provider.serializer.CassandraSerializer;
 import org.camunda.bpm.engine.cassandra.provider.table.ResourceTableHandler;
 import org.camunda.bpm.engine.impl.db.ListQueryParameterObject;
@@ -20,9 +21,9 @@ public class SelectResourcesByDeploymentId implements SelectListQueryHandler<Res
 	  public List<ResourceEntity> executeQuery(CassandraPersistenceSession session, ListQueryParameterObject parameter) {
 	    Session s = session.getSession();
 
-	    List<Row> rows = s.execute(select().all()
+	    List<Row> rows = s.execute(ConsistencyPolicy.forQuery(select().all()
 	      .from(ResourceTableHandler.TABLE_NAME)
-	      .where(eq("deployment_id", parameter.getParameter())))
+	      .where(eq("deployment_id", parameter.getParameter()))))
 	      .all();
 
 	    CassandraSerializer<ResourceEntity> serializer = session.getSerializer(ResourceEntity.class);
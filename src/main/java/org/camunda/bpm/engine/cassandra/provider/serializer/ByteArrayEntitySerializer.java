@@ -0,0 +1,40 @@
+package org.camunda.bpm.engine.cassandra.provider.serializer;
+
+import org.camunda.bpm.engine.impl.persistence.entity.ByteArrayEntity;
+
+import com.datastax.driver.core.GettableData;
+import com.datastax.driver.core.SettableData;
+
+/**
+ * Handles the byte array metadata only, the content is split into chunks by ByteArrayOperations.
+ */
+public class ByteArrayEntitySerializer implements CassandraSerializer<ByteArrayEntity> {
+
+  public void write(SettableData<?> data, ByteArrayEntity entity) {
+    data.setString("id", entity.getId());
+    data.setString("name", entity.getName());
+    data.setString("deployment_id", entity.getDeploymentId());
+    data.setInt("revision", entity.getRevision());
+  }
+
+  public ByteArrayEntity read(GettableData data) {
+    ByteArrayEntity entity = new ByteArrayEntity();
+    entity.setId(data.getString("id"));
+    entity.setName(data.getString("name"));
+    entity.setDeploymentId(data.getString("deployment_id"));
+    entity.setRevision(data.getInt("revision"));
+    return entity;
+  }
+
+  @Override
+  public ByteArrayEntity copy(ByteArrayEntity data) {
+    ByteArrayEntity entity = new ByteArrayEntity();
+    entity.setId(data.getId());
+    entity.setName(data.getName());
+    entity.setDeploymentId(data.getDeploymentId());
+    entity.setRevision(data.getRevision());
+    entity.setBytes(data.getBytes());
+    return entity;
+  }
+
+}
@@ -41,8 +41,20 @@ public class EventSubscriptionSerializer implements CassandraSerializer<EventSub
 
   @Override
   public EventSubscriptionEntity copy(EventSubscriptionEntity data) {
-    //TODO
-    throw new UnsupportedOperationException();
+    String eventType = data.getEventType();
+    if("message".equals(eventType)) {
+      MessageEventSubscriptionEntity entity = new MessageEventSubscriptionEntity();
+      entity.setId(data.getId());
+      entity.setEventType(data.getEventType());
+      entity.setEventName(data.getEventName());
+      entity.setExecutionId(data.getExecutionId());
+      entity.setProcessInstanceId(data.getProcessInstanceId());
+      entity.setActivityId(data.getActivityId());
+      entity.setConfiguration(data.getConfiguration());
+      entity.setCreated(data.getCreated());
+      return entity;
+    }
+    throw new RuntimeException("Unsupported type '"+eventType+"'.");
   }
 
 }
@@ -50,8 +50,27 @@ public class ExecutionEntitySerializer implements CassandraSerializer<ExecutionE
 
   @Override
   public ExecutionEntity copy(ExecutionEntity data) {
-    //TODO
-    throw new UnsupportedOperationException();
+    ExecutionEntity executionEntity = new ExecutionEntity();
+    executionEntity.setId(data.getId());
+    executionEntity.setProcessInstanceId(data.getProcessInstanceId());
+    executionEntity.setParentId(data.getParentId());
+    executionEntity.setProcessDefinitionId(data.getProcessDefinitionId());
+    executionEntity.setSuperExecutionId(data.getSuperExecutionId());
+    executionEntity.setSuperCaseExecutionId(data.getSuperCaseExecutionId());
+    executionEntity.setCaseInstanceId(data.getCaseInstanceId());
+    executionEntity.setActivityInstanceId(data.getActivityInstanceId());
+    executionEntity.setActivityId(data.getActivityId());
+    executionEntity.setActive(data.isActive());
+    executionEntity.setConcurrent(data.isConcurrent());
+    executionEntity.setScope(data.isScope());
+    executionEntity.setEventScope(data.isEventScope());
+    executionEntity.setSuspensionState(data.getSuspensionState());
+    executionEntity.setCachedEntityState(data.getCachedEntityState());
+    executionEntity.setSequenceCounter(data.getSequenceCounter());
+    executionEntity.setBusinessKey(data.getBusinessKey());
+    executionEntity.setRevision(data.getRevision());
+
+    return executionEntity;
   }
 
 }
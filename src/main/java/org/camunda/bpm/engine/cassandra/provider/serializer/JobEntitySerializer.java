@@ -12,6 +12,8 @@
  */
 package org.camunda.bpm.engine.cassandra.provider.serializer;
 
+import java.lang.reflect.Field;
+
 import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.MessageEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.TimerEntity;
@@ -27,6 +29,18 @@ import com.datastax.driver.core.SettableData;
 
 public class JobEntitySerializer implements CassandraSerializer<JobEntity> {
 
+  private static final Field EXCEPTION_BYTE_ARRAY_ID;
+
+  static {
+    try {
+      EXCEPTION_BYTE_ARRAY_ID = JobEntity.class.getDeclaredField("exceptionByteArrayId");
+      EXCEPTION_BYTE_ARRAY_ID.setAccessible(true);
+    }
+    catch (NoSuchFieldException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   @Override
   public void write(SettableData<?> data, JobEntity entity) {
     data.setString("id", entity.getId());
@@ -81,8 +95,7 @@ public class JobEntitySerializer implements CassandraSerializer<JobEntity> {
     entity.setProcessDefinitionId(data.getString("process_def_id"));
     entity.setProcessDefinitionKey(data.getString("process_def_key"));
     entity.setRetries(data.getInt("retries"));
-    //TODO - JobEntity does not allow to set the exception stack trace ID
-    //entity.setExceptionByteArrayId(data.getString("exception_stack_id"));
+    setExceptionByteArrayId(entity, data.getString("exception_stack_id"));
     entity.setExceptionMessage(data.getString("exception_message"));
     if(entity instanceof TimerEntity){
       ((TimerEntity) entity).setRepeat(data.getString("repeat"));
@@ -121,8 +134,7 @@ public class JobEntitySerializer implements CassandraSerializer<JobEntity> {
     entity.setProcessDefinitionId(data.getProcessDefinitionId());
     entity.setProcessDefinitionKey(data.getProcessDefinitionKey());
     entity.setRetries(data.getRetries());
-    //TODO - JobEntity does not allow to set the exception stack trace ID
-    //entity.setExceptionByteArrayId(data.getExceptionByteArrayId());
+    setExceptionByteArrayId(entity, data.getExceptionByteArrayId());
     entity.setExceptionMessage(data.getExceptionMessage());
     if(entity instanceof TimerEntity){
       ((TimerEntity) entity).setRepeat(((TimerEntity) data).getRepeat());
@@ -138,4 +150,14 @@ public class JobEntitySerializer implements CassandraSerializer<JobEntity> {
     return entity;
   }
 
+  //JobEntity does not allow to set the exception stack trace ID
+  protected static void setExceptionByteArrayId(JobEntity entity, String exceptionByteArrayId) {
+    try {
+      EXCEPTION_BYTE_ARRAY_ID.set(entity, exceptionByteArrayId);
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot set the exception stack trace id of job "+entity.getId(), e);
+    }
+  }
+
 }
@@ -0,0 +1,44 @@
+package org.camunda.bpm.engine.cassandra.provider.table;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.datastax.driver.core.Session;
+
+/**
+ * Byte arrays (serialized variables, job exception stack traces) are stored in their own partition,
+ * split into fixed size chunks. The static columns describe the whole array.
+ * Every write stores its chunks under a new generation, only the chunks of the current generation are read.
+ */
+public class ByteArrayTableHandler implements TableHandler {
+
+  public final static String TABLE_NAME = "cam_bytearray";
+
+  protected final static String CREATE_TABLE_STMNT = "CREATE TABLE IF NOT EXISTS "+TABLE_NAME +" "
+      + "(id text, "
+      + "generation timeuuid, "
+      + "chunk int, "
+      + "name text static, "
+      + "deployment_id text static, "
+      + "revision int static, "
+      + "data_length int static, "    //length of the uncompressed array, null for a null array
+      + "chunk_count int static, "
+      + "compressed boolean static, "
+      + "current_generation timeuuid static, "
+      + "data blob, "
+      + "PRIMARY KEY (id, generation, chunk));";
+
+  protected final static String DROP_TABLE = "DROP TABLE IF EXISTS "+TABLE_NAME;
+
+  public List<String> getTableNames() {
+    return Collections.singletonList(TABLE_NAME);
+  }
+
+  public void createTable(Session s) {
+    s.execute(CREATE_TABLE_STMNT);
+  }
+
+  public void dropTable(Session s) {
+    s.execute(DROP_TABLE);
+  }
+}
@@ -0,0 +1,41 @@
+package org.camunda.bpm.engine.cassandra.provider.table;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.datastax.driver.core.Session;
+
+/**
+ * Job executor nodes and the job index buckets they acquire jobs from, both expire with a TTL unless renewed.
+ */
+public class JobBucketLeaseTableHandler implements TableHandler {
+
+  public final static String NODE_TABLE_NAME = "cam_job_node";
+  public final static String LEASE_TABLE_NAME = "cam_job_bucket_lease";
+
+  protected final static String CREATE_NODE_TABLE = "CREATE TABLE IF NOT EXISTS "+NODE_TABLE_NAME +" "
+      + "(node_id text, "
+      + "PRIMARY KEY (node_id));";
+
+  protected final static String CREATE_LEASE_TABLE = "CREATE TABLE IF NOT EXISTS "+LEASE_TABLE_NAME +" "
+      + "(bucket int, "
+      + "owner text, "
+      + "PRIMARY KEY (bucket));";
+
+  protected final static String DROP_NODE_TABLE = "DROP TABLE IF EXISTS "+NODE_TABLE_NAME+";";
+  protected final static String DROP_LEASE_TABLE = "DROP TABLE IF EXISTS "+LEASE_TABLE_NAME+";";
+
+  public List<String> getTableNames() {
+    return Arrays.asList(NODE_TABLE_NAME, LEASE_TABLE_NAME);
+  }
+
+  public void createTable(Session s) {
+    s.execute(CREATE_NODE_TABLE);
+    s.execute(CREATE_LEASE_TABLE);
+  }
+
+  public void dropTable(Session s) {
+    s.execute(DROP_NODE_TABLE);
+    s.execute(DROP_LEASE_TABLE);
+  }
+}
@@ -28,10 +28,22 @@ import org.camunda.bpm.engine.impl.util.json.JSONObject;
 public class JobEntityKey {
   private long shardId;
   private boolean isLocked;
+  private int bucket;
+  private int band;
   private long sortTime;
   private String id;
   
   public JobEntityKey(JobEntity entity, int shardSizeMillis){
+    this(entity, shardSizeMillis, 1);
+  }
+
+  public JobEntityKey(JobEntity entity, int shardSizeMillis, int buckets){
+    this(entity, shardSizeMillis, buckets, new long[0]);
+  }
+
+  public JobEntityKey(JobEntity entity, int shardSizeMillis, int buckets, long[] bandBoundaries){
+    bucket = calculateBucket(entity.getId(), buckets);
+    band = calculateBand(entity.getPriority(), bandBoundaries);
     isLocked = entity.getLockExpirationTime()!=null;
     shardId=IndexUtils.calculateShard(isLocked ? entity.getLockExpirationTime().getTime() : entity.getDuedate().getTime(), shardSizeMillis);
     sortTime = isLocked ? entity.getLockExpirationTime().getTime() : entity.getDuedate().getTime();
@@ -46,6 +58,28 @@ public class JobEntityKey {
     this.id = id;
   }
 
+  /**
+   * The bucket only depends on the job id, so a job stays in its bucket when it is locked or rescheduled.
+   */
+  public static int calculateBucket(String id, int buckets){
+    if(buckets <= 1 || id == null){
+      return 0;
+    }
+    return (id.hashCode() & Integer.MAX_VALUE) % buckets;
+  }
+
+  /**
+   * The band is the number of boundaries (the lowest priority of each band above band 0, ascending)
+   * the priority reaches, lower priorities go to band 0 and higher ones to the top band.
+   */
+  public static int calculateBand(long priority, long[] bandBoundaries){
+    int band = 0;
+    while(band < bandBoundaries.length && priority >= bandBoundaries[band]){
+      band++;
+    }
+    return band;
+  }
+
   @Override
   public boolean equals(Object obj){
     if( !(obj instanceof JobEntityKey) ){
@@ -55,14 +89,29 @@ public class JobEntityKey {
     
     return shardId == other.shardId 
         && isLocked == other.isLocked 
+        && bucket == other.bucket
+        && band == other.band
         && sortTime == other.sortTime
         && ((id==null && other.id == null) || (id!=null && id.equals(other.id)));
   }
+
+  @Override
+  public int hashCode(){
+    int result = (int) (shardId ^ (shardId >>> 32));
+    result = 31 * result + (isLocked ? 1 : 0);
+    result = 31 * result + bucket;
+    result = 31 * result + band;
+    result = 31 * result + (int) (sortTime ^ (sortTime >>> 32));
+    result = 31 * result + (id == null ? 0 : id.hashCode());
+    return result;
+  }
  
   public String toJsonString(){
     JSONObject value = new JSONObject();
     value.put("shard_id", shardId);
     value.put("is_locked", isLocked);
+    value.put("bucket", bucket);
+    value.put("band", band);
     value.put("sort_time", sortTime);
     value.put("id", id);
     return value.toString();
@@ -76,6 +125,12 @@ public class JobEntityKey {
     if(value.has("is_locked")){
       isLocked = value.getBoolean("is_locked");
     }
+    if(value.has("bucket")){
+      bucket = value.getInt("bucket");
+    }
+    if(value.has("band")){
+      band = value.getInt("band");
+    }
     if(value.has("sort_time")){
       sortTime = value.getLong("sort_time");
     }
@@ -100,6 +155,22 @@ public class JobEntityKey {
     this.isLocked = isLocked;
   }
 
+  public int getBucket() {
+    return bucket;
+  }
+
+  public void setBucket(int bucket) {
+    this.bucket = bucket;
+  }
+
+  public int getBand() {
+    return band;
+  }
+
+  public void setBand(int band) {
+    this.band = band;
+  }
+
   public String getId() {
     return id;
   }
@@ -15,6 +15,9 @@ package org.camunda.bpm.engine.cassandra.provider.table;
 import java.util.Arrays;
 import java.util.List;
 
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.context.Context;
+
 import com.datastax.driver.core.Session;
 
 /**
@@ -26,6 +29,7 @@ public class JobTableHandler implements TableHandler {
 
   public final static String TABLE_NAME = "cam_job";
   public final static String JOB_INDEX_TABLE = "cam_job_idx";
+  public final static String JOB_SHARD_TABLE = "cam_job_shard";
 
   protected final static String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS "+TABLE_NAME +" ("
 	      + "id text, "
@@ -55,25 +59,74 @@ public class JobTableHandler implements TableHandler {
   protected final static String CREATE_INDEX = "CREATE TABLE IF NOT EXISTS "+JOB_INDEX_TABLE +" ("
       + "shard_id timestamp, "
       + "is_locked boolean, "
+      + "bucket int, "
+      + "band int, "
       + "sort_time timestamp, "
       + "id text, "
-    + "PRIMARY KEY ((shard_id, is_locked), sort_time, id) ) "
-    + "WITH CLUSTERING ORDER BY (sort_time ASC);";
+    + "PRIMARY KEY ((shard_id, is_locked, bucket), band, sort_time, id) ) "
+    + "WITH CLUSTERING ORDER BY (band DESC, sort_time ASC);";
+
+  //index that also carries the job columns, so that jobs can be acquired with a single read
+  protected final static String CREATE_DENORMALIZED_INDEX = "CREATE TABLE IF NOT EXISTS "+JOB_INDEX_TABLE +" ("
+      + "shard_id timestamp, "
+      + "is_locked boolean, "
+      + "bucket int, "
+      + "band int, "
+      + "sort_time timestamp, "
+      + "id text, "
+      + "type text, "
+      + "due_date timestamp, "
+      + "lock_exp_time timestamp, "
+      + "lock_owner text, "
+      + "exclusive boolean, "
+      + "execution_id text, "
+      + "process_instance_id text, "
+      + "process_def_id text, "
+      + "process_def_key text, "
+      + "retries int, "
+      + "exception_stack_id text, "
+      + "exception_message text, "
+      + "repeat text, "
+      + "handler_type text, "
+      + "handler_cfg text, "
+      + "deployment_id text, "
+      + "suspension_state int, "
+      + "job_def_id text, "
+      + "sequence_counter bigint, "
+      + "priority bigint, "
+      + "revision int, "
+    + "PRIMARY KEY ((shard_id, is_locked, bucket), band, sort_time, id) ) "
+    + "WITH CLUSTERING ORDER BY (band DESC, sort_time ASC);";
+
+  //shards of the job index that may hold jobs, read by the job executor instead of probing the index
+  protected final static String CREATE_SHARD_TABLE = "CREATE TABLE IF NOT EXISTS "+JOB_SHARD_TABLE +" ("
+      + "is_locked boolean, "
+      + "shard_id timestamp, "
+    + "PRIMARY KEY (is_locked, shard_id) );";
 
   protected final static String DROP_TABLE = "DROP TABLE IF EXISTS "+TABLE_NAME;
   protected final static String DROP_INDEX = "DROP TABLE IF EXISTS "+JOB_INDEX_TABLE;
+  protected final static String DROP_SHARD_TABLE = "DROP TABLE IF EXISTS "+JOB_SHARD_TABLE;
 
   public List<String> getTableNames() {
-    return Arrays.asList(TABLE_NAME,JOB_INDEX_TABLE);
+    return Arrays.asList(TABLE_NAME,JOB_INDEX_TABLE,JOB_SHARD_TABLE);
   }
 
   public void createTable(Session s) {
     s.execute(CREATE_TABLE);
-    s.execute(CREATE_INDEX);
+    CassandraProcessEngineConfiguration config = (CassandraProcessEngineConfiguration) Context.getProcessEngineConfiguration();
+    if(config != null && config.isDenormalizedJobIndex()) {
+      s.execute(CREATE_DENORMALIZED_INDEX);
+    }
+    else {
+      s.execute(CREATE_INDEX);
+    }
+    s.execute(CREATE_SHARD_TABLE);
   }
 
   public void dropTable(Session s) {
     s.execute(DROP_TABLE);
     s.execute(DROP_INDEX);
+    s.execute(DROP_SHARD_TABLE);
   }
 }
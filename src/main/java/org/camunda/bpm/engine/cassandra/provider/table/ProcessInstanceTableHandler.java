@@ -3,9 +3,11 @@ package org.camunda.bpm.engine.cassandra.provider.table;
 import java.util.Collections;
 import java.util.List;
 
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
 import org.camunda.bpm.engine.cassandra.provider.type.EventSubscriptionTypeHandler;
 import org.camunda.bpm.engine.cassandra.provider.type.ExecutionTypeHandler;
 import org.camunda.bpm.engine.cassandra.provider.type.VariableTypeHandler;
+import org.camunda.bpm.engine.impl.context.Context;
 
 import com.datastax.driver.core.Session;
 
@@ -21,6 +23,17 @@ public class ProcessInstanceTableHandler implements TableHandler {
       + "event_subscriptions map <text, frozen <"+EventSubscriptionTypeHandler.TYPE_NAME+">>,"
       + "variables map <text, frozen <"+VariableTypeHandler.TYPE_NAME+">>,"
       + "PRIMARY KEY (id));";
+
+  //variables as clustering rows of the process instance partition, the process instance itself is kept in static columns
+  protected final static String CREATE_TABLE_CLUSTERED_VARIABLES = "CREATE TABLE IF NOT EXISTS "+TABLE_NAME +" "
+      + "(id text, "
+      + "var_id text, "
+      + "version int static, "
+      + "business_key text static, "
+      + "executions map <text, frozen <"+ExecutionTypeHandler.TYPE_NAME+">> static,"
+      + "event_subscriptions map <text, frozen <"+EventSubscriptionTypeHandler.TYPE_NAME+">> static,"
+      + "variable frozen <"+VariableTypeHandler.TYPE_NAME+">,"
+      + "PRIMARY KEY (id, var_id));";
   
   public final static String DROP_TABLE = "DROP TABLE IF EXISTS "+TABLE_NAME+";";
     
@@ -29,7 +42,13 @@ public class ProcessInstanceTableHandler implements TableHandler {
   }
 
   public void createTable(Session s) {
-    s.execute(CREATE_TABLE);
+    CassandraProcessEngineConfiguration config = (CassandraProcessEngineConfiguration) Context.getProcessEngineConfiguration();
+    if(config != null && config.isClusteredVariables()) {
+      s.execute(CREATE_TABLE_CLUSTERED_VARIABLES);
+    }
+    else {
+      s.execute(CREATE_TABLE);
+    }
   }
 
   public void dropTable(Session s) {
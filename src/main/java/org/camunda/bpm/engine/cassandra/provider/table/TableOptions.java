@@ -0,0 +1,136 @@
+package org.camunda.bpm.engine.cassandra.provider.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.VersionNumber;
+
+/**
+ * CQL table properties applied to a table after it has been created, e.g.
+ * <code>new TableOptions().setGcGraceSeconds(3600).setCaching("{'keys': 'ALL', 'rows_per_partition': 'ALL'}")</code>.
+ * Map valued properties (compaction, caching, compression) are given as CQL map literals, unset properties keep the server defaults.
+ */
+public class TableOptions {
+
+  private final static Logger LOG = Logger.getLogger(TableOptions.class.getName());
+
+  public static final String TIME_WINDOW_COMPACTION = "TimeWindowCompactionStrategy";
+  public static final String DATE_TIERED_COMPACTION = "DateTieredCompactionStrategy";
+  public static final String LEVELED_COMPACTION = "{'class': 'LeveledCompactionStrategy'}";
+
+  //first release with the time window compaction strategy
+  protected static final VersionNumber TIME_WINDOW_COMPACTION_VERSION = VersionNumber.parse("3.0.8");
+
+  protected String compaction;
+  protected Integer gcGraceSeconds;
+  protected String caching;
+  protected String compression;
+  protected Integer defaultTimeToLive;
+
+  /**
+   * Windows are formed by write time and are not compacted with each other, so a tombstone only drops the data
+   * written in its own window. Only suitable for tables whose rows expire through a TTL.
+   */
+  public static String timeWindowCompaction(int windowHours) {
+    return "{'class': '"+TIME_WINDOW_COMPACTION+"', 'compaction_window_unit': 'HOURS', 'compaction_window_size': "+windowHours+"}";
+  }
+
+  public void apply(Session s, String tableName) {
+    String cql = toCql(s);
+    if(cql.isEmpty()) {
+      return;
+    }
+    s.execute("ALTER TABLE "+tableName+" WITH "+cql+";");
+  }
+
+  protected String toCql(Session s) {
+    List<String> options = new ArrayList<String>();
+    if(compaction != null) {
+      String strategy = compaction;
+      if(strategy.contains(TIME_WINDOW_COMPACTION) && !supportsTimeWindowCompaction(s)) {
+        LOG.info("Time window compaction is not supported by the cluster, using "+DATE_TIERED_COMPACTION+" instead.");
+        strategy = "{'class': '"+DATE_TIERED_COMPACTION+"'}";
+      }
+      options.add("compaction = "+strategy);
+    }
+    if(gcGraceSeconds != null) {
+      options.add("gc_grace_seconds = "+gcGraceSeconds);
+    }
+    if(caching != null) {
+      options.add("caching = "+caching);
+    }
+    if(compression != null) {
+      options.add("compression = "+compression);
+    }
+    if(defaultTimeToLive != null) {
+      options.add("default_time_to_live = "+defaultTimeToLive);
+    }
+
+    StringBuilder cql = new StringBuilder();
+    for(String option : options) {
+      if(cql.length() > 0) {
+        cql.append(" AND ");
+      }
+      cql.append(option);
+    }
+    return cql.toString();
+  }
+
+  protected static boolean supportsTimeWindowCompaction(Session s) {
+    for(Host host : s.getCluster().getMetadata().getAllHosts()) {
+      VersionNumber version = host.getCassandraVersion();
+      if(version == null || version.compareTo(TIME_WINDOW_COMPACTION_VERSION) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public String getCompaction() {
+    return compaction;
+  }
+
+  public TableOptions setCompaction(String compaction) {
+    this.compaction = compaction;
+    return this;
+  }
+
+  public Integer getGcGraceSeconds() {
+    return gcGraceSeconds;
+  }
+
+  public TableOptions setGcGraceSeconds(Integer gcGraceSeconds) {
+    this.gcGraceSeconds = gcGraceSeconds;
+    return this;
+  }
+
+  public String getCaching() {
+    return caching;
+  }
+
+  public TableOptions setCaching(String caching) {
+    this.caching = caching;
+    return this;
+  }
+
+  public String getCompression() {
+    return compression;
+  }
+
+  public TableOptions setCompression(String compression) {
+    this.compression = compression;
+    return this;
+  }
+
+  public Integer getDefaultTimeToLive() {
+    return defaultTimeToLive;
+  }
+
+  public TableOptions setDefaultTimeToLive(Integer defaultTimeToLive) {
+    this.defaultTimeToLive = defaultTimeToLive;
+    return this;
+  }
+}
@@ -1,28 +1,51 @@
 package org.camunda.bpm.engine.cassandra.provider.type;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.UDTValue;
+import com.datastax.driver.core.UserType;
 
 public abstract class AbstractTypeHandler implements UDTypeHandler {
 
+  //resolved user types by keyspace, dropped when the type is (re)created, altered or dropped, see UserTypeChangeListener
+  private final Map<String, UserType> userTypes = new ConcurrentHashMap<String, UserType>();
+
   public void createType(Session s) {
     s.execute(getCreateStatement());
+    userTypes.remove(s.getLoggedKeyspace());
   }
 
   public void dropType(Session s) {
     s.execute(getDropStatement());
+    userTypes.remove(s.getLoggedKeyspace());
   }
   
+  public void invalidate(String keyspace) {
+    //the metadata has the keyspace name in lower case, the session as it was given
+    for(String loggedKeyspace : userTypes.keySet()) {
+      if(loggedKeyspace.equalsIgnoreCase(keyspace)) {
+        userTypes.remove(loggedKeyspace);
+      }
+    }
+  }
+
   protected abstract String getCreateStatement();
   
   protected abstract String getDropStatement();
 
   public UDTValue createValue(Session s) {
-    return s.getCluster()
-        .getMetadata()
-        .getKeyspace(s.getLoggedKeyspace())
-        .getUserType(getTypeName())
-        .newValue();
+    String keyspace = s.getLoggedKeyspace();
+    UserType userType = userTypes.get(keyspace);
+    if(userType == null) {
+      userType = s.getCluster()
+          .getMetadata()
+          .getKeyspace(keyspace)
+          .getUserType(getTypeName());
+      userTypes.put(keyspace, userType);
+    }
+    return userType.newValue();
   }
   
 }
@@ -13,4 +13,9 @@ public interface UDTypeHandler {
   
   UDTValue createValue(Session s);
 
+  /**
+   * Drops the cached type of the keyspace after the type changed.
+   */
+  void invalidate(String keyspace);
+
 }
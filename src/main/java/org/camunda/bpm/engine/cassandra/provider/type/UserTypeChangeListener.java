@@ -0,0 +1,86 @@
+package org.camunda.bpm.engine.cassandra.provider.type;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.SchemaChangeListener;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.UserType;
+
+/**
+ * Drops the user types cached by the type handlers when a type is changed outside of the engine, e.g. by ALTER TYPE.
+ */
+public class UserTypeChangeListener implements SchemaChangeListener {
+
+  private static UserTypeChangeListener listener = null;
+  private static Cluster cluster = null;
+
+  protected final Collection<UDTypeHandler> typeHandlers;
+
+  protected UserTypeChangeListener(Collection<UDTypeHandler> typeHandlers) {
+    this.typeHandlers = new ArrayList<UDTypeHandler>(typeHandlers);
+  }
+
+  public static synchronized void prepare(CassandraProcessEngineConfiguration config, Collection<UDTypeHandler> typeHandlers) {
+    close();
+    cluster = config.getSession().getCluster();
+    listener = new UserTypeChangeListener(typeHandlers);
+    cluster.register(listener);
+  }
+
+  public static synchronized void close() {
+    if(listener != null) {
+      cluster.unregister(listener);
+      listener = null;
+      cluster = null;
+    }
+  }
+
+  protected void invalidate(UserType type) {
+    for(UDTypeHandler typeHandler : typeHandlers) {
+      if(typeHandler.getTypeName().equalsIgnoreCase(type.getTypeName())) {
+        typeHandler.invalidate(type.getKeyspace());
+      }
+    }
+  }
+
+  public void onUserTypeAdded(UserType type) {
+    invalidate(type);
+  }
+
+  public void onUserTypeRemoved(UserType type) {
+    invalidate(type);
+  }
+
+  public void onUserTypeChanged(UserType current, UserType previous) {
+    invalidate(current);
+  }
+
+  public void onKeyspaceAdded(KeyspaceMetadata keyspace) {
+  }
+
+  public void onKeyspaceRemoved(KeyspaceMetadata keyspace) {
+  }
+
+  public void onKeyspaceChanged(KeyspaceMetadata current, KeyspaceMetadata previous) {
+  }
+
+  public void onTableAdded(TableMetadata table) {
+  }
+
+  public void onTableRemoved(TableMetadata table) {
+  }
+
+  public void onTableChanged(TableMetadata current, TableMetadata previous) {
+  }
+
+  public void onRegister(Cluster cluster) {
+  }
+
+  public void onUnregister(Cluster cluster) {
+  }
+}
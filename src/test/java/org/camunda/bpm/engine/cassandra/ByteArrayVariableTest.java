@@ -0,0 +1,126 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.engine.cassandra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.Page;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.impl.test.PluggableProcessEngineTestCase;
+import org.camunda.bpm.engine.impl.util.IoUtil;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.camunda.bpm.engine.test.Deployment;
+import org.camunda.bpm.engine.variable.Variables;
+import org.camunda.bpm.engine.variable.value.FileValue;
+
+public class ByteArrayVariableTest extends PluggableProcessEngineTestCase {
+
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/example-simple.bpmn"})
+  public void testMultiChunkByteArrayVariable() {
+    byte[] bytes = new byte[CassandraProcessEngineConfiguration.DEFAULT_BYTE_ARRAY_CHUNK_SIZE * 2 + 17];
+    new Random(42).nextBytes(bytes);
+
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Process_1");
+    runtimeService.setVariable(processInstance.getId(), "bytes", bytes);
+
+    byte[] loaded = (byte[]) runtimeService.getVariable(processInstance.getId(), "bytes");
+    assertTrue(Arrays.equals(bytes, loaded));
+
+    //shrink the value, chunks of the old value must not be read back
+    byte[] smaller = Arrays.copyOf(bytes, 10);
+    runtimeService.setVariable(processInstance.getId(), "bytes", smaller);
+    loaded = (byte[]) runtimeService.getVariable(processInstance.getId(), "bytes");
+    assertTrue(Arrays.equals(smaller, loaded));
+
+    runtimeService.removeVariable(processInstance.getId(), "bytes");
+    assertNull(runtimeService.getVariable(processInstance.getId(), "bytes"));
+  }
+
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/example-simple.bpmn"})
+  public void testSerializedObjectVariable() {
+    ArrayList<String> value = new ArrayList<String>();
+    for (int i = 0; i < 10000; i++) {
+      value.add("item "+i+" of a list spread over several chunks");
+    }
+
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Process_1");
+    runtimeService.setVariable(processInstance.getId(), "list", value);
+    assertEquals(value, runtimeService.getVariable(processInstance.getId(), "list"));
+
+    value.subList(10, value.size()).clear();
+    runtimeService.setVariable(processInstance.getId(), "list", value);
+    assertEquals(value, runtimeService.getVariable(processInstance.getId(), "list"));
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/example-simple.bpmn"})
+  public void testFileVariable() {
+    byte[] bytes = new byte[CassandraProcessEngineConfiguration.DEFAULT_BYTE_ARRAY_CHUNK_SIZE + 5];
+    new Random(7).nextBytes(bytes);
+
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Process_1");
+    runtimeService.setVariable(processInstance.getId(), "file",
+        Variables.fileValue("invoice.pdf").file(bytes).mimeType("application/pdf").create());
+
+    FileValue file = runtimeService.getVariableTyped(processInstance.getId(), "file");
+    assertEquals("invoice.pdf", file.getFilename());
+    assertEquals("application/pdf", file.getMimeType());
+    assertTrue(Arrays.equals(bytes, IoUtil.readInputStream(file.getValue(), "file")));
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/failing-job.bpmn"})
+  public void testFailedJobExceptionStacktrace() {
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("failingJob");
+    String jobId = findJobId(processInstance.getId());
+
+    try {
+      managementService.executeJob(jobId);
+      fail("the job should fail");
+    }
+    catch (Exception e) {
+      //expected
+    }
+
+    //reloads the job, the stack trace id is set through reflection by the job serializer
+    String stacktrace = managementService.getJobExceptionStacktrace(jobId);
+    assertNotNull(stacktrace);
+    assertTrue(stacktrace.contains(FailingDelegate.MESSAGE));
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  protected String findJobId(final String processInstanceId) {
+    return processEngineConfiguration.getCommandExecutorTxRequired().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        List<JobEntity> jobs = commandContext.getJobManager().findNextJobsToExecute(new Page(0, 100));
+        for (JobEntity job : jobs) {
+          if (processInstanceId.equals(job.getProcessInstanceId())) {
+            return job.getId();
+          }
+        }
+        return null;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,42 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.engine.cassandra;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+
+/**
+ * Test configuration running the engine on a {@link CountingSession}.
+ * With the system property {@value #CLUSTERED_VARIABLES_PROPERTY} the engine stores the variables
+ * as clustering rows, in a keyspace of its own as the layouts do not share the process instance table.
+ */
+public class CountingProcessEngineConfiguration extends CassandraProcessEngineConfiguration {
+
+  public static final String CLUSTERED_VARIABLES_PROPERTY = "cassandra.clusteredVariables";
+
+  @Override
+  protected void initCassandraClient() {
+    if(Boolean.getBoolean(CLUSTERED_VARIABLES_PROPERTY)) {
+      clusteredVariables = true;
+      keyspace = (keyspace != null ? keyspace : DEFAULT_KEYSPACE) + "_clustered";
+    }
+    super.initCassandraClient();
+    if(!(session instanceof CountingSession)) {
+      session = new CountingSession(session);
+    }
+  }
+
+  public CountingSession getCountingSession() {
+    return (CountingSession) session;
+  }
+}
@@ -0,0 +1,175 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.engine.cassandra;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CloseFuture;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Session counting the reads, writes, LWTs and round trips of the statements executed through it.
+ * Preparing statements is not counted.
+ */
+public class CountingSession implements Session {
+
+  protected static final Pattern CONDITION = Pattern.compile("\\sIF\\s", Pattern.CASE_INSENSITIVE);
+
+  protected final Session delegate;
+
+  protected final AtomicLong roundTrips = new AtomicLong();
+  protected final AtomicLong reads = new AtomicLong();
+  protected final AtomicLong writes = new AtomicLong();
+  protected final AtomicLong lwts = new AtomicLong();
+
+  public CountingSession(Session delegate) {
+    this.delegate = delegate;
+  }
+
+  public StatementCounts getCounts() {
+    return new StatementCounts(roundTrips.get(), reads.get(), writes.get(), lwts.get());
+  }
+
+  protected void count(Statement statement) {
+    roundTrips.incrementAndGet();
+    if(countStatement(statement)) {
+      lwts.incrementAndGet();
+    }
+  }
+
+  protected void count(String query) {
+    roundTrips.incrementAndGet();
+    if(countQuery(query)) {
+      lwts.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return true if the statement is conditional
+   */
+  protected boolean countStatement(Statement statement) {
+    if(statement instanceof BatchStatement) {
+      boolean conditional = false;
+      for (Statement child : ((BatchStatement) statement).getStatements()) {
+        conditional |= countStatement(child);
+      }
+      return conditional;
+    }
+    else if(statement instanceof BoundStatement) {
+      return countQuery(((BoundStatement) statement).preparedStatement().getQueryString());
+    }
+    else if(statement instanceof RegularStatement) {
+      return countQuery(((RegularStatement) statement).getQueryString());
+    }
+    return false;
+  }
+
+  protected boolean countQuery(String query) {
+    String trimmed = query.trim().toUpperCase();
+    if(trimmed.startsWith("SELECT")) {
+      reads.incrementAndGet();
+      return false;
+    }
+    if(trimmed.startsWith("INSERT") || trimmed.startsWith("UPDATE") || trimmed.startsWith("DELETE")) {
+      writes.incrementAndGet();
+      return CONDITION.matcher(trimmed).find();
+    }
+    return false;
+  }
+
+  public ResultSet execute(String query) {
+    count(query);
+    return delegate.execute(query);
+  }
+
+  public ResultSet execute(String query, Object... values) {
+    count(query);
+    return delegate.execute(query, values);
+  }
+
+  public ResultSet execute(Statement statement) {
+    count(statement);
+    return delegate.execute(statement);
+  }
+
+  public ResultSetFuture executeAsync(String query) {
+    count(query);
+    return delegate.executeAsync(query);
+  }
+
+  public ResultSetFuture executeAsync(String query, Object... values) {
+    count(query);
+    return delegate.executeAsync(query, values);
+  }
+
+  public ResultSetFuture executeAsync(Statement statement) {
+    count(statement);
+    return delegate.executeAsync(statement);
+  }
+
+  public String getLoggedKeyspace() {
+    return delegate.getLoggedKeyspace();
+  }
+
+  public Session init() {
+    delegate.init();
+    return this;
+  }
+
+  public PreparedStatement prepare(String query) {
+    return delegate.prepare(query);
+  }
+
+  public PreparedStatement prepare(RegularStatement statement) {
+    return delegate.prepare(statement);
+  }
+
+  public ListenableFuture<PreparedStatement> prepareAsync(String query) {
+    return delegate.prepareAsync(query);
+  }
+
+  public ListenableFuture<PreparedStatement> prepareAsync(RegularStatement statement) {
+    return delegate.prepareAsync(statement);
+  }
+
+  public CloseFuture closeAsync() {
+    return delegate.closeAsync();
+  }
+
+  public void close() {
+    delegate.close();
+  }
+
+  public boolean isClosed() {
+    return delegate.isClosed();
+  }
+
+  public Cluster getCluster() {
+    return delegate.getCluster();
+  }
+
+  public State getState() {
+    return delegate.getState();
+  }
+}
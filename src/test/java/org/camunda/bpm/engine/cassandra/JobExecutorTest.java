@@ -13,8 +13,19 @@
 
 package org.camunda.bpm.engine.cassandra;
 
+import java.util.List;
+
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+import org.camunda.bpm.engine.cassandra.provider.operation.JobOperations;
+import org.camunda.bpm.engine.cassandra.provider.query.SelectNextJobsToExecute;
+import org.camunda.bpm.engine.cassandra.provider.table.JobEntityKey;
+import org.camunda.bpm.engine.impl.Page;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
 import org.camunda.bpm.engine.impl.jobexecutor.JobExecutor;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
 import org.camunda.bpm.engine.impl.test.PluggableProcessEngineTestCase;
+import org.camunda.bpm.engine.runtime.Job;
 import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.camunda.bpm.engine.test.Deployment;
 
@@ -40,4 +51,98 @@ public class JobExecutorTest extends PluggableProcessEngineTestCase {
 	  }
 
   } 
+
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/asynch-test.bpmn"})
+  public void testJobWithoutRetriesIsNotAcquired() {
+    final ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("test");
+    List<JobEntity> jobs = findNextJobs(processInstance.getId());
+    assertEquals(2, jobs.size());
+
+    final String jobId = jobs.get(0).getId();
+    String jobDefinitionId = jobs.get(0).getJobDefinitionId();
+    setRetries(jobId, 0);
+    jobs = findNextJobs(processInstance.getId());
+    assertEquals(1, jobs.size());
+    assertFalse(jobId.equals(jobs.get(0).getId()));
+
+    //failed jobs are found through the inactive jobs index
+    List<Job> failedJobs = managementService.createJobQuery().jobDefinitionId(jobDefinitionId).noRetriesLeft().list();
+    assertEquals(1, failedJobs.size());
+    assertEquals(jobId, failedJobs.get(0).getId());
+    assertEquals(1, managementService.createJobQuery().jobDefinitionId(jobDefinitionId).noRetriesLeft().count());
+
+    setRetries(jobId, 3);
+    assertEquals(2, findNextJobs(processInstance.getId()).size());
+    assertEquals(0, managementService.createJobQuery().jobDefinitionId(jobDefinitionId).noRetriesLeft().count());
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/asynch-test.bpmn"})
+  public void testAcquisitionByPriorityBand() {
+    CassandraProcessEngineConfiguration config = (CassandraProcessEngineConfiguration) processEngineConfiguration;
+    long[] bandBoundaries = config.getJobPriorityBandBoundaries();
+    boolean acquireByPriority = config.isJobExecutorAcquireByPriority();
+    config.setJobPriorityBandBoundaries(100, 1000);
+    config.setJobExecutorAcquireByPriority(true);
+    prepareJobAcquisition(config);
+    try {
+      assertEquals(0, JobEntityKey.calculateBand(10, config.getJobPriorityBandBoundaries()));
+      assertEquals(1, JobEntityKey.calculateBand(100, config.getJobPriorityBandBoundaries()));
+      assertEquals(2, JobEntityKey.calculateBand(5000, config.getJobPriorityBandBoundaries()));
+
+      ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("test");
+      List<JobEntity> jobs = findNextJobs(processInstance.getId());
+      assertEquals(2, jobs.size());
+
+      //the job due last goes to the top band, the other one stays in band 0
+      String lowPriorityJobId = jobs.get(0).getId();
+      String highPriorityJobId = jobs.get(1).getId();
+      managementService.setJobPriority(lowPriorityJobId, 10);
+      managementService.setJobPriority(highPriorityJobId, 5000);
+
+      jobs = findNextJobs(processInstance.getId());
+      assertEquals(2, jobs.size());
+      assertEquals(highPriorityJobId, jobs.get(0).getId());
+      assertEquals(lowPriorityJobId, jobs.get(1).getId());
+
+      runtimeService.deleteProcessInstance(processInstance.getId(), null);
+    }
+    finally {
+      config.setJobPriorityBandBoundaries(bandBoundaries);
+      config.setJobExecutorAcquireByPriority(acquireByPriority);
+      prepareJobAcquisition(config);
+    }
+  }
+
+  /**
+   * The job index key and the acquisition passes are set up from the configuration once, when the engine is built.
+   */
+  protected void prepareJobAcquisition(CassandraProcessEngineConfiguration config) {
+    JobOperations.prepare(config);
+    SelectNextJobsToExecute.prepare(config);
+  }
+
+  protected List<JobEntity> findNextJobs(final String processInstanceId) {
+    return processEngineConfiguration.getCommandExecutorTxRequired().execute(new Command<List<JobEntity>>() {
+      public List<JobEntity> execute(CommandContext commandContext) {
+        List<JobEntity> jobs = commandContext.getJobManager().findNextJobsToExecute(new Page(0, 100));
+        for (int i = jobs.size() - 1; i >= 0; i--) {
+          if (!processInstanceId.equals(jobs.get(i).getProcessInstanceId())) {
+            jobs.remove(i);
+          }
+        }
+        return jobs;
+      }
+    });
+  }
+
+  protected void setRetries(final String jobId, final int retries) {
+    processEngineConfiguration.getCommandExecutorTxRequired().execute(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        commandContext.getJobManager().findJobById(jobId).setRetries(retries);
+        return null;
+      }
+    });
+  }
 }
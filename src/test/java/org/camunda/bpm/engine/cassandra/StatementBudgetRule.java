@@ -0,0 +1,116 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.engine.cassandra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.test.ProcessEngineRule;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Asserts upper bounds on the statements a scenario sends to Cassandra, requires the engine to be configured
+ * with the {@link CountingProcessEngineConfiguration}. Usage:
+ *
+ * <pre>
+ * budget.start("process start");
+ * runtimeService.startProcessInstanceByKey("Process_1");
+ * budget.assertBudget(roundTrips, reads, writes, lwts);
+ * </pre>
+ *
+ * The measured counts are logged, a scenario that is started but never asserted fails the test.
+ */
+public class StatementBudgetRule implements TestRule {
+
+  private final static Logger LOG = Logger.getLogger(StatementBudgetRule.class.getName());
+
+  protected final ProcessEngineRule engineRule;
+
+  protected String scenario;
+  protected StatementCounts startCounts;
+  protected List<String> results = new ArrayList<String>();
+
+  public StatementBudgetRule(ProcessEngineRule engineRule) {
+    this.engineRule = engineRule;
+  }
+
+  public Statement apply(final Statement base, final Description description) {
+    return new Statement() {
+      public void evaluate() throws Throwable {
+        scenario = null;
+        results.clear();
+        base.evaluate();
+        if(scenario != null) {
+          throw new AssertionError("Statement budget scenario '"+scenario+"' was started but not asserted");
+        }
+        for (String result : results) {
+          LOG.info(description.getMethodName()+": "+result);
+        }
+      }
+    };
+  }
+
+  public void start(String scenario) {
+    this.scenario = scenario;
+    this.startCounts = getSession().getCounts();
+  }
+
+  /**
+   * @return the counts since the scenario was started
+   */
+  public StatementCounts stop() {
+    if(scenario == null) {
+      throw new IllegalStateException("No statement budget scenario was started");
+    }
+    StatementCounts counts = getSession().getCounts().minus(startCounts);
+    results.add(scenario+": "+counts);
+    scenario = null;
+    return counts;
+  }
+
+  public StatementCounts assertBudget(long maxRoundTrips, long maxReads, long maxWrites, long maxLwts) {
+    String name = scenario;
+    StatementCounts counts = stop();
+    StringBuilder exceeded = new StringBuilder();
+    appendExceeded(exceeded, "round trips", counts.getRoundTrips(), maxRoundTrips);
+    appendExceeded(exceeded, "reads", counts.getReads(), maxReads);
+    appendExceeded(exceeded, "writes", counts.getWrites(), maxWrites);
+    appendExceeded(exceeded, "lwts", counts.getLwts(), maxLwts);
+    if(exceeded.length() > 0) {
+      throw new AssertionError("Statement budget of '"+name+"' exceeded: "+exceeded+" ("+counts+")");
+    }
+    return counts;
+  }
+
+  protected void appendExceeded(StringBuilder exceeded, String name, long count, long max) {
+    if(count > max) {
+      if(exceeded.length() > 0) {
+        exceeded.append(", ");
+      }
+      exceeded.append(name).append(" ").append(count).append(" > ").append(max);
+    }
+  }
+
+  protected CountingSession getSession() {
+    ProcessEngineConfigurationImpl config = (ProcessEngineConfigurationImpl) engineRule.getProcessEngine().getProcessEngineConfiguration();
+    if(!(config instanceof CountingProcessEngineConfiguration)) {
+      throw new IllegalStateException("The statement budget requires the "+CountingProcessEngineConfiguration.class.getSimpleName());
+    }
+    return ((CountingProcessEngineConfiguration) config).getCountingSession();
+  }
+}
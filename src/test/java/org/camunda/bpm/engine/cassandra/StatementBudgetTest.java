@@ -0,0 +1,150 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.engine.cassandra;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.cassandra.cfg.CassandraProcessEngineConfiguration;
+import org.camunda.bpm.engine.cassandra.provider.JobShardRegistry;
+import org.camunda.bpm.engine.cassandra.provider.query.SelectNextJobsToExecute;
+import org.camunda.bpm.engine.cassandra.provider.table.JobTableHandler;
+import org.camunda.bpm.engine.impl.Page;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.camunda.bpm.engine.test.Deployment;
+import org.camunda.bpm.engine.test.ProcessEngineRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.datastax.driver.core.Session;
+
+/**
+ * Upper bounds on the statements of reference scenarios, so that a change multiplying the statements per step fails the build.
+ * The bounds leave some headroom over the measured counts, which are logged by the {@link StatementBudgetRule}.
+ */
+public class StatementBudgetTest {
+
+  @Rule
+  public ProcessEngineRule engineRule = new ProcessEngineRule();
+
+  @Rule
+  public StatementBudgetRule budget = new StatementBudgetRule(engineRule);
+
+  protected RuntimeService runtimeService;
+
+  @Before
+  public void init() {
+    runtimeService = engineRule.getRuntimeService();
+  }
+
+  @Test
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/example-simple.bpmn"})
+  public void testProcessStart() {
+    //the latest definition id and the definition, one batch with the process instance, its execution and subscription and their 4 index rows
+    budget.start("process start");
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Process_1");
+    budget.assertBudget(4, 3, 9, 0);
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  @Test
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/loop.bpmn"})
+  public void testServiceTaskStep() {
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Process_1");
+
+    //the process instance and the jobs of the 3 ended executions, the locked batch deleting the multi instance body,
+    //its 2 instances and their 3 subscriptions, the index batch, and the batch inserting the next loop with its index rows
+    budget.start("service task step");
+    runtimeService.createMessageCorrelation("continue")
+      .processInstanceId(processInstance.getId())
+      .correlateAll();
+    budget.assertBudget(9, 6, 44, 1);
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  @Test
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/example-sequence.bpmn"})
+  public void testMessageCorrelation() {
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("Process_1");
+
+    //the process instance, the locked batch deleting the subscription, the index batch and the batch with the next subscription
+    budget.start("message correlation");
+    runtimeService.createMessageCorrelation("Message-Request")
+      .processInstanceId(processInstance.getId())
+      .correlate();
+    budget.assertBudget(5, 2, 10, 1);
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  @Test
+  @Deployment(resources = {"org/camunda/bpm/engine/cassandra/asynch-test.bpmn"})
+  public void testJobAcquisition() {
+    clearJobTables();
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("test");
+    reloadJobShards();
+
+    //the current locked and unlocked shards (one more if the shard changed since the start) and the 2 jobs
+    budget.start("job acquisition");
+    List<JobEntity> jobs = findNextJobs();
+    budget.assertBudget(5, 5, 0, 0);
+
+    assertEquals(2, jobs.size());
+    for (JobEntity job : jobs) {
+      assertEquals(processInstance.getId(), job.getProcessInstanceId());
+    }
+
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+  }
+
+  /**
+   * Jobs and shards left by other tests would be read by the acquisition as well.
+   */
+  protected void clearJobTables() {
+    Session session = getConfiguration().getSession();
+    session.execute("TRUNCATE "+JobTableHandler.TABLE_NAME);
+    session.execute("TRUNCATE "+JobTableHandler.JOB_INDEX_TABLE);
+    session.execute("TRUNCATE "+JobTableHandler.JOB_SHARD_TABLE);
+  }
+
+  /**
+   * Drops the shards cached by the acquisition and reloads the ones registered since the job tables were cleared.
+   */
+  protected void reloadJobShards() {
+    JobShardRegistry.prepare(getConfiguration());
+    SelectNextJobsToExecute.prepare(getConfiguration());
+  }
+
+  protected CassandraProcessEngineConfiguration getConfiguration() {
+    return (CassandraProcessEngineConfiguration) engineRule.getProcessEngine().getProcessEngineConfiguration();
+  }
+
+  protected List<JobEntity> findNextJobs() {
+    ProcessEngineConfigurationImpl config = (ProcessEngineConfigurationImpl) engineRule.getProcessEngine().getProcessEngineConfiguration();
+    return config.getCommandExecutorTxRequired().execute(new Command<List<JobEntity>>() {
+      public List<JobEntity> execute(CommandContext commandContext) {
+        return commandContext.getJobManager().findNextJobsToExecute(new Page(0, 100));
+      }
+    });
+  }
+}
@@ -0,0 +1,57 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.camunda.bpm.engine.cassandra;
+
+/**
+ * Statements sent through a {@link CountingSession}. A batch is one round trip, each statement in it a read or write,
+ * and one LWT if any of its statements is conditional.
+ */
+public class StatementCounts {
+
+  protected final long roundTrips;
+  protected final long reads;
+  protected final long writes;
+  protected final long lwts;
+
+  public StatementCounts(long roundTrips, long reads, long writes, long lwts) {
+    this.roundTrips = roundTrips;
+    this.reads = reads;
+    this.writes = writes;
+    this.lwts = lwts;
+  }
+
+  public StatementCounts minus(StatementCounts other) {
+    return new StatementCounts(roundTrips - other.roundTrips, reads - other.reads, writes - other.writes, lwts - other.lwts);
+  }
+
+  public long getRoundTrips() {
+    return roundTrips;
+  }
+
+  public long getReads() {
+    return reads;
+  }
+
+  public long getWrites() {
+    return writes;
+  }
+
+  public long getLwts() {
+    return lwts;
+  }
+
+  public String toString() {
+    return "round trips "+roundTrips+", reads "+reads+", writes "+writes+", lwts "+lwts;
+  }
+}